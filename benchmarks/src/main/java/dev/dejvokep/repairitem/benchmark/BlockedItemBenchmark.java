@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.benchmark;
+
+import dev.dejvokep.repairitem.repair.BlockedItem;
+import dev.dejvokep.repairitem.repair.BlockedItemIndex;
+import dev.dejvokep.repairitem.repair.ItemContext;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link BlockedItem#compare(ItemContext)} as the rule count and meta complexity grow.
+ * <p>
+ * The item matches none of the rules, so all of them are evaluated; the item's meta is decoded once per invocation,
+ * as in a real repair.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockedItemBenchmark {
+
+    /**
+     * Properties the rules compare.
+     */
+    public enum Complexity {
+        /**
+         * Type only.
+         */
+        TYPE,
+        /**
+         * Type and display name.
+         */
+        NAME,
+        /**
+         * Type, display name, lore, flags and unbreakable state.
+         */
+        FULL
+    }
+
+    @Param({"1", "8", "64"})
+    public int rules;
+
+    @Param({"TYPE", "NAME", "FULL"})
+    public Complexity complexity;
+
+    private BlockedItem[] blockedItems;
+    private BlockedItemIndex index;
+    private ItemStack item;
+
+    @Setup
+    public void setup() {
+        StandInServer.install();
+
+        // Compile the rules
+        List<BlockedItem> list = new ArrayList<>();
+        for (int i = 0; i < rules; i++)
+            list.add(new BlockedItem(rule(i)));
+        blockedItems = list.toArray(new BlockedItem[0]);
+        index = BlockedItemIndex.build(list);
+
+        item = Items.create(Material.DIAMOND_PICKAXE, 100, "Pickaxe", Arrays.asList("First line", "Second line", "Item"), true, ItemFlag.HIDE_ENCHANTS);
+    }
+
+    /**
+     * Creates the rule with the given index, which does not match the benchmarked item.
+     *
+     * @param i the index
+     * @return the rule
+     */
+    private Map<String, Object> rule(int i) {
+        Map<String, Object> rule = new HashMap<>();
+        switch (complexity) {
+            case TYPE:
+                rule.put(BlockedItem.PATH_TYPE, Material.IRON_PICKAXE.name());
+                break;
+            case NAME:
+                rule.put(BlockedItem.PATH_TYPE, Material.DIAMOND_PICKAXE.name());
+                rule.put(BlockedItem.PATH_NAME, "Pickaxe " + i);
+                break;
+            case FULL:
+                // Differs only in the last line of the lore
+                rule.put(BlockedItem.PATH_TYPE, Material.DIAMOND_PICKAXE.name());
+                rule.put(BlockedItem.PATH_NAME, "Pickaxe");
+                rule.put(BlockedItem.PATH_LORE, Arrays.asList("First line", "Second line", "Rule " + i));
+                rule.put(BlockedItem.PATH_FLAGS, Collections.singletonList(ItemFlag.HIDE_ENCHANTS.name()));
+                rule.put(BlockedItem.PATH_UNBREAKABLE, true);
+                break;
+        }
+        return rule;
+    }
+
+    @Benchmark
+    public boolean compare() {
+        ItemContext context = new ItemContext(item);
+        for (BlockedItem blockedItem : blockedItems)
+            if (blockedItem.compare(context))
+                return true;
+        return false;
+    }
+
+    @Benchmark
+    public boolean index() {
+        return index.isBlocked(new ItemContext(item));
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.benchmark;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Factory of benchmarked items. Requires the {@link StandInServer} to be installed.
+ */
+public class Items {
+
+    /**
+     * Creates an item of the given type with the given meta properties.
+     *
+     * @param type        the type
+     * @param damage      the damage
+     * @param name        the display name, or <code>null</code> if none
+     * @param lore        the lore, or <code>null</code> if none
+     * @param unbreakable the unbreakable state
+     * @param flags       the flags
+     * @return the item
+     */
+    @NotNull
+    public static ItemStack create(@NotNull Material type, int damage, @Nullable String name, @Nullable List<String> lore, boolean unbreakable, @NotNull ItemFlag... flags) {
+        ItemStack item = new ItemStack(type);
+        ItemMeta meta = item.getItemMeta();
+        ((Damageable) meta).setDamage(damage);
+        meta.setDisplayName(name);
+        meta.setLore(lore);
+        meta.setUnbreakable(unbreakable);
+        meta.addItemFlags(flags);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+}
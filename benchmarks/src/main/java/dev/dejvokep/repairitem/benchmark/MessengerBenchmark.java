@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.benchmark;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import dev.dejvokep.repairitem.utils.Messages;
+import dev.dejvokep.repairitem.utils.Messenger;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Messenger} rendering of the default messages, sent to a sender which only stores the last
+ * message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessengerBenchmark {
+
+    private final String[] sink = new String[1];
+    private final RepairAccumulator result = new RepairAccumulator();
+    private Messenger messenger;
+    private CommandSender sender;
+
+    @Setup
+    public void setup() throws IOException {
+        StandInServer.install();
+
+        // Default configuration
+        try (InputStream stream = Objects.requireNonNull(Messages.class.getResourceAsStream("/config.yml"))) {
+            Messages messages = new Messages(YamlDocument.create(stream));
+            messenger = new Messenger(() -> messages);
+        }
+        sender = StandInServer.sender(sink);
+
+        // Result
+        for (int i = 0; i < 12; i++)
+            result.recordRepaired();
+        result.recordBlocked();
+    }
+
+    @Benchmark
+    public String plain() {
+        messenger.send(sender, "reload");
+        return sink[0];
+    }
+
+    @Benchmark
+    public String repair() {
+        messenger.sendRepairToSender(sender, CommandFunction.ALL, result, "Steve");
+        return sink[0];
+    }
+
+    @Benchmark
+    public String multiline() {
+        messenger.send(sender, "help");
+        return sink[0];
+    }
+
+}
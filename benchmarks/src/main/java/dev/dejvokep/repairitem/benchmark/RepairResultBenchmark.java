@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.benchmark;
+
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import dev.dejvokep.repairitem.repair.RepairResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks chains of {@link RepairResult#merge(RepairResult)}, compared with {@link RepairAccumulator#add(RepairAccumulator)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepairResultBenchmark {
+
+    @Param({"4", "41", "1000"})
+    public int length;
+
+    private final RepairAccumulator accumulator = new RepairAccumulator();
+    private RepairResult[] results;
+    private RepairAccumulator[] accumulators;
+
+    @Setup
+    public void setup() {
+        results = new RepairResult[length];
+        accumulators = new RepairAccumulator[length];
+        for (int i = 0; i < length; i++) {
+            // Alternate the outcomes
+            RepairAccumulator accumulator = new RepairAccumulator();
+            switch (i % 3) {
+                case 0:
+                    results[i] = RepairResult.success();
+                    accumulator.recordRepaired();
+                    break;
+                case 1:
+                    results[i] = RepairResult.error(RepairResult.Status.ERROR_NOT_REPAIRED);
+                    accumulator.recordIntact();
+                    break;
+                default:
+                    results[i] = RepairResult.error(RepairResult.Status.ERROR_UNSUPPORTED);
+                    accumulator.recordUnsupported();
+            }
+            accumulators[i] = accumulator;
+        }
+    }
+
+    @Benchmark
+    public RepairResult merge() {
+        RepairResult merged = RepairResult.empty();
+        for (RepairResult result : results)
+            merged = merged.merge(result);
+        return merged;
+    }
+
+    @Benchmark
+    public RepairAccumulator add() {
+        accumulator.reset();
+        for (RepairAccumulator other : accumulators)
+            accumulator.add(other);
+        return accumulator;
+    }
+
+}
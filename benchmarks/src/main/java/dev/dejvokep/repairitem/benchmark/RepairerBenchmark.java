@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.benchmark;
+
+import dev.dejvokep.repairitem.repair.BlockedItem;
+import dev.dejvokep.repairitem.repair.BlockedItemIndex;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import dev.dejvokep.repairitem.repair.Repairer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Repairer#repair(ItemStack, RepairAccumulator)} on damaged, intact and blocked items.
+ * <p>
+ * As the repair modifies the item, every invocation repairs a fresh clone; {@link #baseline()} measures the clone
+ * alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepairerBenchmark {
+
+    /**
+     * State of the repaired item.
+     */
+    public enum ItemState {
+        DAMAGED, INTACT, BLOCKED
+    }
+
+    @Param({"DAMAGED", "INTACT", "BLOCKED"})
+    public ItemState state;
+
+    private final RepairAccumulator accumulator = new RepairAccumulator();
+    private Repairer repairer;
+    private ItemStack item;
+
+    @Setup
+    public void setup() {
+        StandInServer.install();
+
+        // Block pickaxes named "Blocked"
+        Map<String, Object> rule = new HashMap<>();
+        rule.put(BlockedItem.PATH_TYPE, Material.DIAMOND_PICKAXE.name());
+        rule.put(BlockedItem.PATH_NAME, "Blocked");
+        BlockedItemIndex index = BlockedItemIndex.build(Collections.singletonList(new BlockedItem(rule)));
+        repairer = new Repairer(() -> index);
+
+        switch (state) {
+            case DAMAGED:
+                item = Items.create(Material.DIAMOND_PICKAXE, 100, "Pickaxe", null, false);
+                break;
+            case INTACT:
+                item = Items.create(Material.DIAMOND_PICKAXE, 0, "Pickaxe", null, false);
+                break;
+            case BLOCKED:
+                item = Items.create(Material.DIAMOND_PICKAXE, 100, "Blocked", null, false);
+                break;
+        }
+    }
+
+    @Benchmark
+    public ItemStack baseline() {
+        return item.clone();
+    }
+
+    @Benchmark
+    public RepairAccumulator repair() {
+        accumulator.reset();
+        repairer.repair(item.clone(), accumulator);
+        return accumulator;
+    }
+
+}
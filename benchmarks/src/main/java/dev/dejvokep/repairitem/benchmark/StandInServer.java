@@ -0,0 +1,274 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory stand-in for the server, implementing only the parts of the API the plugin's hot paths rely on: the
+ * item factory and item metas (display name, lore, flags, unbreakable state and damage).
+ * <p>
+ * Enchantments are not supported, as their constants are backed by the server's registries.
+ */
+public class StandInServer {
+
+    /**
+     * Version reported by the stand-in.
+     */
+    public static final String VERSION = "1.20.4-R0.1-SNAPSHOT";
+
+    private static boolean installed = false;
+
+    /**
+     * Installs the stand-in as the server, if not installed yet.
+     */
+    public static synchronized void install() {
+        if (installed)
+            return;
+
+        ItemFactory itemFactory = proxy(ItemFactory.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getItemMeta":
+                    return newMeta(new MetaState());
+                case "isApplicable":
+                    return true;
+                case "asMetaFor":
+                    return args[0];
+                case "updateMaterial":
+                    return args[1];
+                case "equals":
+                    if (args.length == 1)
+                        return proxy == args[0];
+                    return stateOf((ItemMeta) args[0]).equals(stateOf((ItemMeta) args[1]));
+                default:
+                    return defaultValue(method);
+            }
+        });
+        Logger logger = Logger.getLogger("StandInServer");
+        Bukkit.setServer(proxy(Server.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getItemFactory":
+                    return itemFactory;
+                case "getLogger":
+                    return logger;
+                case "getName":
+                    return "StandIn";
+                case "getVersion":
+                case "getBukkitVersion":
+                    return VERSION;
+                default:
+                    return defaultValue(method);
+            }
+        }));
+        installed = true;
+    }
+
+    /**
+     * Creates a command sender which stores the last message sent to it into the given array (at index 0).
+     *
+     * @param sink the array to store the last message into
+     * @return the sender
+     */
+    @NotNull
+    public static CommandSender sender(@NotNull String[] sink) {
+        return proxy(CommandSender.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "sendMessage":
+                    if (args[0] instanceof String)
+                        sink[0] = (String) args[0];
+                    return null;
+                case "getName":
+                    return "Sender";
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Creates a new meta backed by the given state.
+     *
+     * @param state the state
+     * @return the meta
+     */
+    @NotNull
+    private static ItemMeta newMeta(@NotNull MetaState state) {
+        return (ItemMeta) Proxy.newProxyInstance(StandInServer.class.getClassLoader(), new Class<?>[]{ItemMeta.class, Damageable.class}, state);
+    }
+
+    /**
+     * Returns the state of the given meta, or an empty state if <code>null</code>.
+     *
+     * @param meta the meta
+     * @return the state
+     */
+    @NotNull
+    private static MetaState stateOf(@Nullable ItemMeta meta) {
+        return meta == null ? new MetaState() : (MetaState) Proxy.getInvocationHandler(meta);
+    }
+
+    /**
+     * Creates a proxy of the given interface.
+     *
+     * @param type    the interface
+     * @param handler the invocation handler
+     * @param <T>     the interface type
+     * @return the proxy
+     */
+    @NotNull
+    private static <T> T proxy(@NotNull Class<T> type, @NotNull InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StandInServer.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Returns the default value of the given method's return type: <code>false</code> or <code>0</code> for
+     * primitives, <code>null</code> otherwise.
+     *
+     * @param method the method
+     * @return the default value
+     */
+    @Nullable
+    private static Object defaultValue(@NotNull Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class)
+            return null;
+        if (type == boolean.class)
+            return false;
+        if (type == char.class)
+            return (char) 0;
+        if (type == long.class)
+            return 0L;
+        if (type == double.class)
+            return 0D;
+        if (type == float.class)
+            return 0F;
+        if (type == short.class)
+            return (short) 0;
+        if (type == byte.class)
+            return (byte) 0;
+        return 0;
+    }
+
+    /**
+     * State of a meta, also acting as its invocation handler.
+     */
+    private static class MetaState implements InvocationHandler {
+
+        private String displayName;
+        private List<String> lore;
+        private final Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+        private boolean unbreakable;
+        private int damage;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "hasDisplayName":
+                    return displayName != null;
+                case "getDisplayName":
+                    return displayName;
+                case "setDisplayName":
+                    displayName = (String) args[0];
+                    return null;
+                case "hasLore":
+                    return lore != null;
+                case "getLore":
+                    return lore == null ? null : new ArrayList<>(lore);
+                case "setLore":
+                    lore = args[0] == null ? null : new ArrayList<>((List<String>) args[0]);
+                    return null;
+                case "hasEnchants":
+                    return false;
+                case "getEnchants":
+                    return Collections.emptyMap();
+                case "getItemFlags":
+                    return flags.isEmpty() ? EnumSet.noneOf(ItemFlag.class) : EnumSet.copyOf(flags);
+                case "addItemFlags":
+                    flags.addAll(Arrays.asList((ItemFlag[]) args[0]));
+                    return null;
+                case "hasItemFlag":
+                    return flags.contains((ItemFlag) args[0]);
+                case "isUnbreakable":
+                    return unbreakable;
+                case "setUnbreakable":
+                    unbreakable = (boolean) args[0];
+                    return null;
+                case "hasDamage":
+                    return damage > 0;
+                case "getDamage":
+                    return damage;
+                case "setDamage":
+                    damage = (int) args[0];
+                    return null;
+                case "clone":
+                    return newMeta(copy());
+                case "equals":
+                    return args[0] instanceof ItemMeta && Proxy.isProxyClass(args[0].getClass()) && equals(Proxy.getInvocationHandler(args[0]));
+                case "hashCode":
+                    return hashCode();
+                case "toString":
+                    return "StandInMeta{name=" + displayName + ", lore=" + lore + ", flags=" + flags + ", unbreakable=" + unbreakable + ", damage=" + damage + "}";
+                default:
+                    return defaultValue(method);
+            }
+        }
+
+        /**
+         * Returns a copy of this state.
+         *
+         * @return the copy
+         */
+        @NotNull
+        private MetaState copy() {
+            MetaState copy = new MetaState();
+            copy.displayName = displayName;
+            copy.lore = lore == null ? null : new ArrayList<>(lore);
+            copy.flags.addAll(flags);
+            copy.unbreakable = unbreakable;
+            copy.damage = damage;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MetaState)) return false;
+            MetaState that = (MetaState) o;
+            return unbreakable == that.unbreakable && damage == that.damage && Objects.equals(displayName, that.displayName) && Objects.equals(lore, that.lore) && flags.equals(that.flags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(displayName, lore, flags, unbreakable, damage);
+        }
+    }
+
+}
@@ -19,16 +19,35 @@ import dev.dejvokep.boostedyaml.YamlDocument;
 import dev.dejvokep.boostedyaml.dvs.versioning.BasicVersioning;
 import dev.dejvokep.boostedyaml.settings.loader.LoaderSettings;
 import dev.dejvokep.boostedyaml.settings.updater.UpdaterSettings;
+import dev.dejvokep.repairitem.cluster.ClusterService;
+import dev.dejvokep.repairitem.cluster.ClusterTransport;
 import dev.dejvokep.repairitem.command.CommandRegistrar;
+import dev.dejvokep.repairitem.config.CatalogLoader;
+import dev.dejvokep.repairitem.config.ConfigWatcher;
+import dev.dejvokep.repairitem.listener.AutoRepairListener;
+import dev.dejvokep.repairitem.listener.DamagedSlotListener;
+import dev.dejvokep.repairitem.listener.OfflineRepairListener;
+import dev.dejvokep.repairitem.offline.OfflineRepairService;
+import dev.dejvokep.repairitem.repair.AutoRepairQueue;
+import dev.dejvokep.repairitem.repair.DamagedSlotIndex;
+import dev.dejvokep.repairitem.config.Settings;
+import dev.dejvokep.repairitem.repair.MassRepairScheduler;
 import dev.dejvokep.repairitem.repair.Repairer;
+import dev.dejvokep.repairitem.stats.RepairStats;
+import dev.dejvokep.repairitem.stats.SlowCommandDetector;
+import dev.dejvokep.repairitem.stats.StatsCharts;
 import dev.dejvokep.repairitem.utils.Messenger;
 import org.bstats.bukkit.Metrics;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 /**
@@ -36,26 +55,61 @@ import java.util.logging.Level;
  */
 public class RepairItem extends JavaPlugin {
 
-    private YamlDocument config;
+    /**
+     * Path to the custom metrics charts option.
+     */
+    public static final String PATH_METRICS_CHARTS = "metrics-charts";
+
+    /**
+     * Period (in ticks) in which the blocked items are reordered by their hits.
+     */
+    private static final long REORDER_PERIOD = 20L * 60;
+
+    private final AtomicReference<Settings> settings = new AtomicReference<>();
+    private final Object reloadLock = new Object();
+    private final RepairStats stats = new RepairStats();
+    private final SlowCommandDetector slowCommandDetector = new SlowCommandDetector(this);
     private Repairer repairer;
+    private MassRepairScheduler massRepairScheduler;
     private CommandRegistrar commandRegistrar;
     private Messenger messenger;
+    private ConfigWatcher configWatcher;
+    private AutoRepairQueue autoRepairQueue;
+    private DamagedSlotIndex damagedSlotIndex;
+    private OfflineRepairService offlineRepairService;
+    private ClusterService clusterService;
 
     @Override
     public void onEnable() {
         // Thank you message
         getLogger().info("Thank you for downloading RepairItem!");
 
+        // Catalogs
+        File catalogs = new File(getDataFolder(), CatalogLoader.FOLDER);
+        if (!catalogs.exists() && !catalogs.mkdirs())
+            getLogger().warning("Failed to create the catalogs folder!");
+
         try {
-            // Create the config file
-            config = YamlDocument.create(new File(getDataFolder(), "config.yml"), Objects.requireNonNull(getResource("config.yml")), LoaderSettings.builder().setAutoUpdate(true).build(), UpdaterSettings.builder().setVersioning(new BasicVersioning("config-version")).build());
+            // Create the config file, blocking until the catalogs are loaded so no blocked item is ever repaired
+            settings.set(new Settings(this, loadConfiguration(true)));
         } catch (IOException ex) {
             getLogger().log(Level.SEVERE, "Failed to initialize the config file!", ex);
             return;
         }
 
+        // Damaged slot index
+        if (getConfiguration().getBoolean(DamagedSlotListener.PATH_ENABLED)) {
+            if (DamagedSlotListener.isSupported()) {
+                damagedSlotIndex = new DamagedSlotIndex(getConfiguration().getLong(DamagedSlotListener.PATH_MAX_AGE, 60L) * 1_000_000_000L);
+                Bukkit.getPluginManager().registerEvents(new DamagedSlotListener(damagedSlotIndex), this);
+            } else {
+                getLogger().warning("The damaged slot index is not supported on this server version, disabling it.");
+            }
+        }
+
         // Initialize
         repairer = new Repairer(this);
+        massRepairScheduler = new MassRepairScheduler(this);
         messenger = new Messenger(this);
 
         // Commands
@@ -65,21 +119,150 @@ public class RepairItem extends JavaPlugin {
             getLogger().log(Level.SEVERE, "An unexpected error occurred whilst registering commands!", ex);
         }
 
+        // Reorder the blocked items by their hits
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> getSettings().getBlockedItems().reorder(), REORDER_PERIOD, REORDER_PERIOD);
+
+        // Auto-repair
+        if (getConfiguration().getBoolean(AutoRepairListener.PATH_ENABLED)) {
+            autoRepairQueue = new AutoRepairQueue(this);
+            autoRepairQueue.runTaskTimer(this, 1L, 1L);
+            Bukkit.getPluginManager().registerEvents(new AutoRepairListener(autoRepairQueue), this);
+        }
+
+        // Offline repair
+        if (getConfiguration().getBoolean(OfflineRepairListener.PATH_ENABLED)) {
+            offlineRepairService = new OfflineRepairService(this);
+            Bukkit.getPluginManager().registerEvents(new OfflineRepairListener(offlineRepairService), this);
+        }
+
+        // Cluster mode
+        if (getConfiguration().getBoolean(ClusterService.PATH_ENABLED)) {
+            String name = getConfiguration().getString(ClusterService.PATH_TRANSPORT, "plugin-messaging");
+            ClusterTransport transport = ClusterService.createTransport(this, name);
+            if (transport != null) {
+                clusterService = new ClusterService(this, transport, Math.max(0, getConfiguration().getInt(ClusterService.PATH_NODES, 0)), Math.max(1L, getConfiguration().getLong(ClusterService.PATH_TIMEOUT, 5L) * 20L));
+                clusterService.start();
+            } else {
+                getLogger().warning("Unknown cluster transport " + name + ", disabling cluster mode.");
+            }
+        }
+
+        // Config watcher
+        if (getConfiguration().getBoolean(ConfigWatcher.PATH_ENABLED)) {
+            try {
+                configWatcher = new ConfigWatcher(this, getConfigurationFile().toPath(), getConfiguration().getLong(ConfigWatcher.PATH_DEBOUNCE, 500L));
+                configWatcher.start();
+            } catch (IOException ex) {
+                getLogger().log(Level.SEVERE, "Failed to start watching the config file!", ex);
+                configWatcher = null;
+            }
+        }
+
         // Metrics
-        if (config.getBoolean("metrics")) {
+        if (getConfiguration().getBoolean("metrics")) {
             getLogger().info("Initializing metrics.");
-            new Metrics(this, 9131);
+            Metrics metrics = new Metrics(this, 9131);
+            if (getConfiguration().getBoolean(PATH_METRICS_CHARTS))
+                StatsCharts.register(metrics, stats);
         }
     }
 
+    @Override
+    public void onDisable() {
+        // Stop watching
+        if (configWatcher != null)
+            configWatcher.stop();
+        // Stop offline repairs
+        if (offlineRepairService != null)
+            offlineRepairService.stop();
+        // Stop cluster mode
+        if (clusterService != null)
+            clusterService.stop();
+    }
+
+    /**
+     * Reloads the configuration and compiles new settings off the main thread. Once compiled, the settings are
+     * published by a single reference swap, so readers never observe a partially built state.
+     * <p>
+     * If the configuration fails to load, the current settings are kept and the returned future completes
+     * exceptionally.
+     *
+     * @return the future completed with the new settings
+     */
+    @NotNull
+    public CompletableFuture<Settings> reload() {
+        return reload(false);
+    }
+
+    /**
+     * Reloads the configuration and compiles new settings off the main thread, as documented at {@link #reload()}.
+     * <p>
+     * If incremental, only the {@link Settings.Part parts} whose sections differ from the current configuration are
+     * rebuilt, the others are reused from the current settings. Incremental reloads react to changes made to the file,
+     * so the updated configuration is not saved back - the write would be detected as another change.
+     *
+     * @param incremental whether to rebuild only the changed parts
+     * @return the future completed with the new settings
+     */
+    @NotNull
+    public CompletableFuture<Settings> reload(boolean incremental) {
+        CompletableFuture<Settings> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            // One reload at a time
+            synchronized (reloadLock) {
+                try {
+                    YamlDocument configuration = loadConfiguration(!incremental);
+                    Settings settings = incremental ? new Settings(this, configuration, this.settings.get()) : new Settings(this, configuration);
+                    this.settings.set(settings);
+                    future.complete(settings);
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Loads (creates or updates, if needed) the configuration file into a new document.
+     *
+     * @param save whether to save the file back if updated
+     * @return the loaded configuration
+     * @throws IOException if failed to load the file
+     */
+    @NotNull
+    private YamlDocument loadConfiguration(boolean save) throws IOException {
+        return YamlDocument.create(getConfigurationFile(), Objects.requireNonNull(getResource("config.yml")), LoaderSettings.builder().setAutoUpdate(true).build(), UpdaterSettings.builder().setVersioning(new BasicVersioning("config-version")).setAutoSave(save).build());
+    }
+
+    /**
+     * Returns the configuration file.
+     *
+     * @return the configuration file
+     */
+    @NotNull
+    private File getConfigurationFile() {
+        return new File(getDataFolder(), "config.yml");
+    }
+
     /**
-     * Returns the plugin configuration.
+     * Returns the current settings.
+     *
+     * @return the current settings
+     */
+    @NotNull
+    public Settings getSettings() {
+        return settings.get();
+    }
+
+    /**
+     * Returns the plugin configuration the current settings were compiled from. The document must not be modified.
      *
      * @return the plugin configuration
      */
     @NotNull
     public YamlDocument getConfiguration() {
-        return config;
+        return settings.get().getConfiguration();
     }
 
     /**
@@ -92,6 +275,16 @@ public class RepairItem extends JavaPlugin {
         return repairer;
     }
 
+    /**
+     * Returns the mass repair scheduler.
+     *
+     * @return the mass repair scheduler
+     */
+    @NotNull
+    public MassRepairScheduler getMassRepairScheduler() {
+        return massRepairScheduler;
+    }
+
     /**
      * Returns the command registrar.
      *
@@ -102,6 +295,66 @@ public class RepairItem extends JavaPlugin {
         return commandRegistrar;
     }
 
+    /**
+     * Returns the repair statistics.
+     *
+     * @return the repair statistics
+     */
+    @NotNull
+    public RepairStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the auto-repair queue.
+     *
+     * @return the auto-repair queue, or <code>null</code> if auto-repair is disabled
+     */
+    @Nullable
+    public AutoRepairQueue getAutoRepairQueue() {
+        return autoRepairQueue;
+    }
+
+    /**
+     * Returns the damaged slot index.
+     *
+     * @return the damaged slot index, or <code>null</code> if disabled
+     */
+    @Nullable
+    public DamagedSlotIndex getDamagedSlotIndex() {
+        return damagedSlotIndex;
+    }
+
+    /**
+     * Returns the offline repair service.
+     *
+     * @return the offline repair service, or <code>null</code> if offline repair is disabled
+     */
+    @Nullable
+    public OfflineRepairService getOfflineRepairService() {
+        return offlineRepairService;
+    }
+
+    /**
+     * Returns the cluster service.
+     *
+     * @return the cluster service, or <code>null</code> if cluster mode is disabled
+     */
+    @Nullable
+    public ClusterService getClusterService() {
+        return clusterService;
+    }
+
+    /**
+     * Returns the slow command detector.
+     *
+     * @return the slow command detector
+     */
+    @NotNull
+    public SlowCommandDetector getSlowCommandDetector() {
+        return slowCommandDetector;
+    }
+
     /**
      * Returns the messenger.
      *
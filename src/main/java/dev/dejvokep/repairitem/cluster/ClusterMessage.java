@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.cluster;
+
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A message exchanged between the servers of a network - a request to repair all players, or the result of such a
+ * repair on one server.
+ */
+public class ClusterMessage {
+
+    /**
+     * Message types.
+     */
+    public enum Type {
+        /**
+         * A request to repair all players, published by the server the command was issued on.
+         */
+        REQUEST,
+        /**
+         * The result of a requested repair, published by each server which ran it.
+         */
+        RESULT
+    }
+
+    /**
+     * Version of the message format. Messages of other versions are ignored.
+     */
+    private static final int VERSION = 1;
+
+    private final Type type;
+    private final UUID job;
+    private final CommandFunction function;
+    private final String sender;
+    private final RepairAccumulator result;
+
+    /**
+     * Initializes the message.
+     *
+     * @param type     type of the message
+     * @param job      ID of the repair job
+     * @param function the repair function
+     * @param sender   replacement for the <code>{sender}</code> placeholder
+     * @param result   the result, empty for requests
+     */
+    private ClusterMessage(@NotNull Type type, @NotNull UUID job, @NotNull CommandFunction function, @NotNull String sender, @NotNull RepairAccumulator result) {
+        this.type = type;
+        this.job = job;
+        this.function = function;
+        this.sender = sender;
+        this.result = result;
+    }
+
+    /**
+     * Creates a request to repair all players.
+     *
+     * @param job      ID of the repair job
+     * @param function the repair function
+     * @param sender   replacement for the <code>{sender}</code> placeholder in messages sent to the players
+     * @return the message
+     */
+    @NotNull
+    public static ClusterMessage request(@NotNull UUID job, @NotNull CommandFunction function, @NotNull String sender) {
+        return new ClusterMessage(Type.REQUEST, job, function, sender, new RepairAccumulator());
+    }
+
+    /**
+     * Creates the result of a requested repair.
+     *
+     * @param job      ID of the repair job
+     * @param function the repair function
+     * @param result   the result
+     * @return the message
+     */
+    @NotNull
+    public static ClusterMessage result(@NotNull UUID job, @NotNull CommandFunction function, @NotNull RepairAccumulator result) {
+        return new ClusterMessage(Type.RESULT, job, function, "", result);
+    }
+
+    /**
+     * Encodes the message.
+     *
+     * @return the encoded message
+     */
+    @NotNull
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(type.ordinal());
+            out.writeLong(job.getMostSignificantBits());
+            out.writeLong(job.getLeastSignificantBits());
+            out.writeUTF(function.name());
+            out.writeUTF(sender);
+            out.writeInt(result.getRepaired());
+            out.writeInt(result.getIntact());
+            out.writeInt(result.getBlocked());
+            out.writeInt(result.getUnsupported());
+            out.writeInt(result.getFailed());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to encode a cluster message!", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a message.
+     *
+     * @param data the encoded message
+     * @return the message, or <code>null</code> if of another version, or referring to an unknown function
+     * @throws IOException if the message is malformed
+     */
+    @Nullable
+    public static ClusterMessage decode(@NotNull byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            // Another version
+            if (in.readUnsignedByte() != VERSION)
+                return null;
+
+            int type = in.readUnsignedByte();
+            if (type >= Type.values().length)
+                throw new IOException("Unknown message type " + type + "!");
+            UUID job = new UUID(in.readLong(), in.readLong());
+            String function = in.readUTF(), sender = in.readUTF();
+            RepairAccumulator result = new RepairAccumulator();
+            try {
+                result.add(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid result!", ex);
+            }
+
+            // Unknown function
+            try {
+                return new ClusterMessage(Type.values()[type], job, CommandFunction.valueOf(function), sender, result);
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the type of the message.
+     *
+     * @return the type
+     */
+    @NotNull
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns ID of the repair job.
+     *
+     * @return ID of the job
+     */
+    @NotNull
+    public UUID getJob() {
+        return job;
+    }
+
+    /**
+     * Returns the repair function.
+     *
+     * @return the function
+     */
+    @NotNull
+    public CommandFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * Returns the replacement for the <code>{sender}</code> placeholder. Empty for results.
+     *
+     * @return the sender replacement
+     */
+    @NotNull
+    public String getSender() {
+        return sender;
+    }
+
+    /**
+     * Returns the result. Empty for requests.
+     *
+     * @return the result
+     */
+    @NotNull
+    public RepairAccumulator getResult() {
+        return result;
+    }
+
+}
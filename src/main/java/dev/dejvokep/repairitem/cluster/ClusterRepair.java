@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.cluster;
+
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A repair of all players across the network, issued on this server. Results of the other servers are merged with the
+ * local one; the callback is called once the local repair completed and either all expected servers replied, or the
+ * timeout elapsed. All methods must be called from the main thread.
+ */
+public class ClusterRepair {
+
+    private final ClusterService service;
+    private final UUID job;
+    private final int nodes;
+    private final Consumer<RepairAccumulator> callback;
+    private final RepairAccumulator merged = new RepairAccumulator();
+    private BukkitTask timeout;
+    private int replies = 0;
+    private boolean local = false, expired = false, finished = false;
+
+    /**
+     * Initializes the repair.
+     *
+     * @param service  the service
+     * @param job      ID of the job
+     * @param nodes    the amount of other servers expected to reply, or <code>0</code> to wait for the timeout
+     * @param callback the callback accepting the merged result
+     */
+    ClusterRepair(@NotNull ClusterService service, @NotNull UUID job, int nodes, @NotNull Consumer<RepairAccumulator> callback) {
+        this.service = service;
+        this.job = job;
+        this.nodes = nodes;
+        this.callback = callback;
+    }
+
+    /**
+     * Completes the local part of the repair.
+     *
+     * @param result the local result
+     */
+    public void complete(@NotNull RepairAccumulator result) {
+        merged.add(result);
+        local = true;
+        tryFinish();
+    }
+
+    /**
+     * Merges the result replied by another server.
+     *
+     * @param result the result
+     */
+    void reply(@NotNull RepairAccumulator result) {
+        // Replied too late
+        if (finished)
+            return;
+
+        merged.add(result);
+        replies++;
+        tryFinish();
+    }
+
+    /**
+     * Stops waiting for further replies.
+     */
+    void expire() {
+        expired = true;
+        tryFinish();
+    }
+
+    /**
+     * Sets the task expiring the repair.
+     *
+     * @param timeout the timeout task
+     */
+    void setTimeout(@NotNull BukkitTask timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Calls the callback if the local repair completed and no more replies are awaited.
+     */
+    private void tryFinish() {
+        if (finished || !local || (!expired && (nodes <= 0 || replies < nodes)))
+            return;
+
+        finished = true;
+        if (timeout != null)
+            timeout.cancel();
+        service.finished(this);
+        callback.accept(merged);
+    }
+
+    /**
+     * Returns ID of the job.
+     *
+     * @return ID of the job
+     */
+    @NotNull
+    public UUID getJob() {
+        return job;
+    }
+
+    /**
+     * Returns the amount of other servers which replied so far.
+     *
+     * @return the amount of replies
+     */
+    public int getReplies() {
+        return replies;
+    }
+
+}
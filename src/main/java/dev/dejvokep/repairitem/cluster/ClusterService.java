@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.cluster;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Service fanning repairs of all players out to the other servers of a network, over a pluggable
+ * {@link ClusterTransport}.
+ * <p>
+ * The server the command was issued on publishes a request, repairs its own players and merges the results replied by
+ * the other servers into one summary. Each server receiving the request repairs its players as a
+ * {@link dev.dejvokep.repairitem.repair.MassRepairScheduler mass repair} and replies with the result. Messages are
+ * handled on the main thread.
+ */
+public class ClusterService {
+
+    /**
+     * Path to the cluster mode enabled option.
+     */
+    public static final String PATH_ENABLED = "cluster.enabled";
+
+    /**
+     * Path to the name of the transport.
+     */
+    public static final String PATH_TRANSPORT = "cluster.transport";
+
+    /**
+     * Path to the amount of other servers expected to reply.
+     */
+    public static final String PATH_NODES = "cluster.nodes";
+
+    /**
+     * Path to the timeout of replies (in seconds).
+     */
+    public static final String PATH_TIMEOUT = "cluster.timeout";
+
+    private final RepairItem plugin;
+    private final ClusterTransport transport;
+    private final int nodes;
+    private final long timeout;
+    private final Map<UUID, ClusterRepair> pending = new HashMap<>();
+
+    /**
+     * Initializes the service.
+     *
+     * @param plugin    the plugin instance
+     * @param transport the transport
+     * @param nodes     the amount of other servers expected to reply, or <code>0</code> to always wait for the timeout
+     * @param timeout   the timeout of replies (in ticks)
+     */
+    public ClusterService(@NotNull RepairItem plugin, @NotNull ClusterTransport transport, int nodes, long timeout) {
+        this.plugin = plugin;
+        this.transport = transport;
+        this.nodes = nodes;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Creates the transport of the given name - <code>plugin-messaging</code> or <code>in-memory</code>.
+     *
+     * @param plugin the plugin instance
+     * @param name   name of the transport
+     * @return the transport, or <code>null</code> if unknown
+     */
+    @Nullable
+    public static ClusterTransport createTransport(@NotNull RepairItem plugin, @NotNull String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "plugin-messaging":
+                return new PluginMessagingTransport(plugin);
+            case "in-memory":
+                return new InMemoryTransport();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Starts receiving messages.
+     */
+    public void start() {
+        transport.open(message -> {
+            // Handle on the main thread
+            if (Bukkit.isPrimaryThread())
+                receive(message);
+            else if (plugin.isEnabled())
+                Bukkit.getScheduler().runTask(plugin, () -> receive(message));
+        });
+    }
+
+    /**
+     * Publishes a repair of all players with the given function to the other servers. The caller runs the local part
+     * and {@link ClusterRepair#complete(RepairAccumulator) completes} the returned repair with its result. Must be
+     * called from the main thread.
+     *
+     * @param function the repair function
+     * @param sender   replacement for the <code>{sender}</code> placeholder in messages sent to the players
+     * @param callback the callback accepting the merged result of all servers
+     * @return the repair
+     */
+    @NotNull
+    public ClusterRepair submit(@NotNull CommandFunction function, @NotNull String sender, @NotNull Consumer<RepairAccumulator> callback) {
+        UUID job = UUID.randomUUID();
+        ClusterRepair repair = new ClusterRepair(this, job, nodes, callback);
+
+        // Nothing to wait for
+        if (!transport.publish(ClusterMessage.request(job, function, sender).encode())) {
+            repair.expire();
+            return repair;
+        }
+
+        pending.put(job, repair);
+        repair.setTimeout(Bukkit.getScheduler().runTaskLater(plugin, repair::expire, timeout));
+        return repair;
+    }
+
+    /**
+     * Handles the given received message.
+     *
+     * @param data the encoded message
+     */
+    private void receive(@NotNull byte[] data) {
+        ClusterMessage message;
+        try {
+            message = ClusterMessage.decode(data);
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Received a malformed cluster message!", ex);
+            return;
+        }
+        // Another version
+        if (message == null)
+            return;
+
+        switch (message.getType()) {
+            case REQUEST:
+                run(message);
+                return;
+            case RESULT:
+                ClusterRepair repair = pending.get(message.getJob());
+                if (repair != null)
+                    repair.reply(message.getResult());
+        }
+    }
+
+    /**
+     * Repairs all players as requested by the given message and replies with the result.
+     *
+     * @param request the request
+     */
+    private void run(@NotNull ClusterMessage request) {
+        CommandFunction function = request.getFunction();
+        Collection<? extends Player> players = Bukkit.getOnlinePlayers();
+
+        // Nobody to repair (some transports cannot carry the reply either)
+        if (players.isEmpty()) {
+            transport.publish(ClusterMessage.result(request.getJob(), function, new RepairAccumulator()).encode());
+            return;
+        }
+
+        plugin.getMassRepairScheduler().submit(function, players,
+                (player, localResult) -> plugin.getMessenger().sendRepairToTarget(player, function, localResult, request.getSender()),
+                globalResult -> {
+                    plugin.getStats().record(globalResult);
+                    transport.publish(ClusterMessage.result(request.getJob(), function, globalResult).encode());
+                });
+    }
+
+    /**
+     * Removes the given finished repair from the pending ones.
+     *
+     * @param repair the repair
+     */
+    void finished(@NotNull ClusterRepair repair) {
+        pending.remove(repair.getJob());
+    }
+
+    /**
+     * Stops receiving messages and expires all pending repairs.
+     */
+    public void stop() {
+        transport.close();
+        for (ClusterRepair repair : pending.values().toArray(new ClusterRepair[0]))
+            repair.expire();
+    }
+
+}
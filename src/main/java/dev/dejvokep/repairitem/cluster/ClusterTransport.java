@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.cluster;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * A transport delivering {@link ClusterMessage cluster messages} between the servers of a network.
+ * <p>
+ * A message published by a server is delivered to all the other servers (but not back to the publisher). Delivery is
+ * best-effort; the {@link ClusterService} does not wait for replies longer than the configured timeout.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Opens the transport. Received messages are passed to the given receiver, which may be called from any thread.
+     * Called from the main thread.
+     *
+     * @param receiver the receiver of the messages
+     */
+    void open(@NotNull Consumer<byte[]> receiver);
+
+    /**
+     * Publishes the given message to all the other servers. Called from the main thread.
+     *
+     * @param message the encoded message
+     * @return whether the message was published, <code>false</code> if the transport cannot currently send messages
+     */
+    boolean publish(@NotNull byte[] message);
+
+    /**
+     * Closes the transport. Called from the main thread.
+     */
+    void close();
+
+}
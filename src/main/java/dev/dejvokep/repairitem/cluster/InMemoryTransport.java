@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.cluster;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * A transport connecting all opened instances within the same process, intended for local testing.
+ */
+public class InMemoryTransport implements ClusterTransport {
+
+    /**
+     * All opened instances.
+     */
+    private static final Set<InMemoryTransport> BUS = new CopyOnWriteArraySet<>();
+
+    private volatile Consumer<byte[]> receiver;
+
+    @Override
+    public void open(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        BUS.add(this);
+    }
+
+    @Override
+    public boolean publish(@NotNull byte[] message) {
+        for (InMemoryTransport transport : BUS)
+            if (transport != this)
+                transport.receiver.accept(message.clone());
+        return true;
+    }
+
+    @Override
+    public void close() {
+        BUS.remove(this);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.cluster;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * A transport forwarding messages to all the other servers through the BungeeCord plugin messaging channel (supported
+ * by BungeeCord and its forks, and by Velocity with the channel enabled).
+ * <p>
+ * As plugin messages are carried by player connections, messages can only be published while at least one player is
+ * online on the publishing server.
+ */
+public class PluginMessagingTransport implements ClusterTransport, PluginMessageListener {
+
+    /**
+     * The BungeeCord channel.
+     */
+    private static final String CHANNEL = "BungeeCord";
+
+    /**
+     * The forwarded sub-channel.
+     */
+    private static final String SUBCHANNEL = "RepairItem";
+
+    private final Plugin plugin;
+    private Consumer<byte[]> receiver;
+
+    /**
+     * Initializes the transport.
+     *
+     * @param plugin the plugin instance
+     */
+    public PluginMessagingTransport(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void open(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        plugin.getServer().getMessenger().registerOutgoingPluginChannel(plugin, CHANNEL);
+        plugin.getServer().getMessenger().registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public boolean publish(@NotNull byte[] message) {
+        // No connection to carry the message
+        Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+        if (!players.hasNext())
+            return false;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(message.length);
+            out.write(message);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to write a plugin message!", ex);
+        }
+
+        players.next().sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+        return true;
+    }
+
+    @Override
+    public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, @NotNull byte[] data) {
+        if (!CHANNEL.equals(channel))
+            return;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            // Another sub-channel
+            if (!SUBCHANNEL.equals(in.readUTF()))
+                return;
+
+            byte[] message = new byte[in.readUnsignedShort()];
+            in.readFully(message);
+            receiver.accept(message);
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Received a malformed plugin message!", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        plugin.getServer().getMessenger().unregisterIncomingPluginChannel(plugin, CHANNEL, this);
+        plugin.getServer().getMessenger().unregisterOutgoingPluginChannel(plugin, CHANNEL);
+    }
+
+}
@@ -16,17 +16,20 @@
 package dev.dejvokep.repairitem.command;
 
 import cloud.commandframework.CommandManager;
+import cloud.commandframework.Command;
+import cloud.commandframework.arguments.standard.IntegerArgument;
 import cloud.commandframework.arguments.standard.StringArgument;
 import cloud.commandframework.bukkit.BukkitCommandManager;
-import cloud.commandframework.execution.CommandExecutionCoordinator;
+import cloud.commandframework.execution.AsynchronousCommandExecutionCoordinator;
 import cloud.commandframework.meta.CommandMeta;
 import dev.dejvokep.repairitem.RepairItem;
 import dev.dejvokep.repairitem.command.function.CommandFunction;
 import dev.dejvokep.repairitem.command.function.FunctionHandler;
+import dev.dejvokep.repairitem.command.handler.RegionCommand;
+import dev.dejvokep.repairitem.command.handler.RepairCommand;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
@@ -41,7 +44,12 @@ public class CommandRegistrar {
      */
     public static final String PERMISSION_BASE = "repairitem";
 
-    private final Set<String> allTarget = new HashSet<>();
+    /**
+     * Maximum radius of a region repair, preventing overflows (the actual limit is given by the maximum amount of
+     * chunks).
+     */
+    private static final int MAX_RADIUS = 1_000_000;
+
     private final RepairItem plugin;
 
     /**
@@ -53,8 +61,8 @@ public class CommandRegistrar {
     public CommandRegistrar(@NotNull RepairItem plugin) throws Exception {
         this.plugin = plugin;
 
-        // Create the manager
-        CommandManager<CommandSender> manager = new BukkitCommandManager<>(plugin, CommandExecutionCoordinator.simpleCoordinator(), Function.identity(), Function.identity());
+        // Create the manager (commands are parsed and executed off the main thread)
+        CommandManager<CommandSender> manager = new BukkitCommandManager<>(plugin, AsynchronousCommandExecutionCoordinator.<CommandSender>newBuilder().withAsynchronousParsing().build(), Function.identity(), Function.identity());
 
         for (CommandFunction function : CommandFunction.values()) {
             List<String> literals = plugin.getConfiguration().getStringList("command.function." + function.getPath());
@@ -66,6 +74,9 @@ public class CommandRegistrar {
             // Aliases and handler
             String[] aliases = literals.size() == 1 ? new String[0] : literals.subList(1, literals.size()).toArray(new String[literals.size() - 1]);
             FunctionHandler handler = function.initHandler(plugin);
+            // Repair handlers finish on other threads and record their latency themselves
+            if (!(handler instanceof RepairCommand))
+                handler = timed(function, handler);
 
             // Register for self and targeted repair
             manager.command(manager.commandBuilder("repair")
@@ -74,6 +85,10 @@ public class CommandRegistrar {
                     .meta(CommandMeta.DESCRIPTION, function.getDescription())
                     .handler(handler::accept).build());
 
+            // Region variants
+            if (function == CommandFunction.REGION)
+                registerRegion(manager, literals.get(0), aliases, function, handler);
+
             if (!function.hasTarget())
                 continue;
 
@@ -87,11 +102,54 @@ public class CommandRegistrar {
     }
 
     /**
-     * Reloads the registrar.
+     * Registers the variants of the region function, with a radius and with the corners of a cuboid.
+     *
+     * @param manager  the command manager
+     * @param literal  the main literal of the function
+     * @param aliases  the aliases of the literal
+     * @param function the function
+     * @param handler  the handler
      */
-    public void reload() {
-        allTarget.clear();
-        allTarget.addAll(plugin.getConfiguration().getStringList("command.target.all"));
+    private void registerRegion(@NotNull CommandManager<CommandSender> manager, @NotNull String literal, @NotNull String[] aliases, @NotNull CommandFunction function, @NotNull FunctionHandler handler) {
+        String permission = String.format("%s.%s.self", PERMISSION_BASE, function.getPermission());
+
+        // Radius
+        manager.command(manager.commandBuilder("repair")
+                .literal(literal, aliases)
+                .argument(IntegerArgument.<CommandSender>newBuilder(RegionCommand.RADIUS_ARGUMENT).withMin(0).withMax(MAX_RADIUS).build())
+                .permission(permission)
+                .meta(CommandMeta.DESCRIPTION, function.getDescription())
+                .handler(handler::accept).build());
+
+        // Cuboid
+        Command.Builder<CommandSender> builder = manager.commandBuilder("repair").literal(literal, aliases);
+        for (String corner : RegionCommand.CORNER_ARGUMENTS)
+            builder = builder.argument(IntegerArgument.of(corner));
+        manager.command(builder
+                .argument(StringArgument.optional(RegionCommand.WORLD_ARGUMENT))
+                .permission(permission)
+                .meta(CommandMeta.DESCRIPTION, function.getDescription())
+                .handler(handler::accept).build());
+    }
+
+    /**
+     * Wraps the given handler, so the latency of every execution is recorded into the {@link RepairItem#getStats()
+     * statistics}.
+     *
+     * @param function the function the handler represents
+     * @param handler  the handler
+     * @return the wrapped handler
+     */
+    @NotNull
+    private FunctionHandler timed(@NotNull CommandFunction function, @NotNull FunctionHandler handler) {
+        return context -> {
+            long start = System.nanoTime();
+            try {
+                handler.accept(context);
+            } finally {
+                plugin.getStats().recordCommand(function, System.nanoTime() - start);
+            }
+        };
     }
 
     /**
@@ -102,6 +160,6 @@ public class CommandRegistrar {
      */
     @NotNull
     public Set<String> getAllTarget() {
-        return allTarget;
+        return plugin.getSettings().getAllTarget();
     }
 }
\ No newline at end of file
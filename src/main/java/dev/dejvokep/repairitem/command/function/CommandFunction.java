@@ -17,8 +17,10 @@ package dev.dejvokep.repairitem.command.function;
 
 import dev.dejvokep.repairitem.RepairItem;
 import dev.dejvokep.repairitem.command.handler.HelpCommand;
+import dev.dejvokep.repairitem.command.handler.RegionCommand;
 import dev.dejvokep.repairitem.command.handler.ReloadCommand;
 import dev.dejvokep.repairitem.command.handler.RepairCommand;
+import dev.dejvokep.repairitem.command.handler.StatsCommand;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.function.BiFunction;
@@ -56,6 +58,14 @@ public enum CommandFunction {
      * Repairs the off-hand.
      */
     OFF_HAND("Repairs the off-hand.", RepairCommand::new, true),
+    /**
+     * Repairs the ender chest.
+     */
+    ENDER_CHEST("Repairs items in the ender chest.", RepairCommand::new, true),
+    /**
+     * Repairs items in block inventories within a region.
+     */
+    REGION("Repairs items in containers within a region.", (plugin, function) -> new RegionCommand(plugin), false),
     /**
      * Reloads the plugin.
      */
@@ -63,7 +73,11 @@ public enum CommandFunction {
     /**
      * Shows the help page.
      */
-    HELP("Displays the help page.", (plugin, function) -> new HelpCommand(plugin), false);
+    HELP("Displays the help page.", (plugin, function) -> new HelpCommand(plugin), false),
+    /**
+     * Shows the repair statistics.
+     */
+    STATS("Displays the repair statistics.", (plugin, function) -> new StatsCommand(plugin), false);
 
     private final String path, permission, description;
     private final BiFunction<RepairItem, CommandFunction, FunctionHandler> handlerInitializer;
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.command.handler;
+
+import cloud.commandframework.context.CommandContext;
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.FunctionHandler;
+import dev.dejvokep.repairitem.repair.RegionRepairJob;
+import dev.dejvokep.repairitem.utils.Placeholder;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Region repair function command handler.
+ * <p>
+ * The region is either a radius around the sender (<code>[radius]</code>, spanning the whole world height), or a
+ * cuboid given by its corners (<code>&lt;x1&gt; &lt;y1&gt; &lt;z1&gt; &lt;x2&gt; &lt;y2&gt; &lt;z2&gt; [world]</code>).
+ */
+public class RegionCommand implements FunctionHandler {
+
+    /**
+     * Names of the corner arguments.
+     */
+    public static final String[] CORNER_ARGUMENTS = {"x1", "y1", "z1", "x2", "y2", "z2"};
+
+    /**
+     * Name of the radius argument.
+     */
+    public static final String RADIUS_ARGUMENT = "radius";
+
+    /**
+     * Name of the world argument.
+     */
+    public static final String WORLD_ARGUMENT = "world";
+
+    private final RepairItem plugin;
+
+    /**
+     * Initializes the command handler.
+     *
+     * @param plugin the plugin instance
+     */
+    public RegionCommand(@NotNull RepairItem plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void accept(@NotNull CommandContext<CommandSender> context) {
+        // Locations and worlds are read on the main thread
+        Bukkit.getScheduler().runTask(plugin, () -> run(context));
+    }
+
+    /**
+     * Handles the command. Must be called from the main thread.
+     *
+     * @param context the command context
+     */
+    private void run(@NotNull CommandContext<CommandSender> context) {
+        CommandSender sender = context.getSender();
+        Integer x1 = context.getOrDefault(CORNER_ARGUMENTS[0], null);
+
+        // Cuboid
+        if (x1 != null) {
+            String worldName = context.getOrDefault(WORLD_ARGUMENT, null);
+            World world = worldName != null ? Bukkit.getWorld(worldName) : sender instanceof Player ? ((Player) sender).getWorld() : null;
+            if (world == null) {
+                if (worldName == null)
+                    plugin.getMessenger().send(context, "region.error.no-location");
+                else
+                    plugin.getMessenger().send(context, "region.error.unknown-world", Placeholder.WORLD, worldName);
+                return;
+            }
+
+            int[] corners = new int[CORNER_ARGUMENTS.length];
+            for (int i = 0; i < corners.length; i++)
+                corners[i] = context.get(CORNER_ARGUMENTS[i]);
+            submit(context, world, Math.min(corners[0], corners[3]), Math.min(corners[1], corners[4]), Math.min(corners[2], corners[5]),
+                    Math.max(corners[0], corners[3]), Math.max(corners[1], corners[4]), Math.max(corners[2], corners[5]));
+            return;
+        }
+
+        // Around the sender
+        if (!(sender instanceof Player)) {
+            plugin.getMessenger().send(context, "region.error.no-location");
+            return;
+        }
+        int radius = context.getOrDefault(RADIUS_ARGUMENT, plugin.getSettings().getRegionRepairDefaultRadius());
+        Location location = ((Player) sender).getLocation();
+        submit(context, location.getWorld(), location.getBlockX() - radius, Integer.MIN_VALUE, location.getBlockZ() - radius,
+                location.getBlockX() + radius, Integer.MAX_VALUE, location.getBlockZ() + radius);
+    }
+
+    /**
+     * Submits a repair of the given region, unless it spans too many chunks. The region bounds are inclusive.
+     *
+     * @param context the command context
+     * @param world   the world
+     * @param minX    the min X coordinate
+     * @param minY    the min Y coordinate
+     * @param minZ    the min Z coordinate
+     * @param maxX    the max X coordinate
+     * @param maxY    the max Y coordinate
+     * @param maxZ    the max Z coordinate
+     */
+    private void submit(@NotNull CommandContext<CommandSender> context, @NotNull World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        // Too large
+        int chunks = RegionRepairJob.getChunks(minX, minZ, maxX, maxZ);
+        if (chunks > plugin.getSettings().getRegionRepairMaxChunks()) {
+            plugin.getMessenger().send(context, "region.error.too-large", Placeholder.TOTAL, String.valueOf(chunks));
+            return;
+        }
+
+        plugin.getMessenger().send(context, "region.started", Placeholder.TOTAL, String.valueOf(chunks));
+        new RegionRepairJob(plugin, context.getSender(), world, minX, minY, minZ, maxX, maxY, maxZ).runTaskTimer(plugin, 1L, 1L);
+    }
+
+}
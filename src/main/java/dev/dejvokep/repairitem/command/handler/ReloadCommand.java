@@ -18,10 +18,10 @@ package dev.dejvokep.repairitem.command.handler;
 import cloud.commandframework.context.CommandContext;
 import dev.dejvokep.repairitem.RepairItem;
 import dev.dejvokep.repairitem.command.function.FunctionHandler;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.IOException;
 import java.util.logging.Level;
 
 /**
@@ -42,13 +42,11 @@ public class ReloadCommand implements FunctionHandler {
 
     @Override
     public void accept(@NotNull CommandContext<CommandSender> context) {
-        try {
-            plugin.getConfiguration().reload();
-        } catch (IOException ex) {
-            plugin.getLogger().log(Level.SEVERE, "An error occurred whilst reloading plugin configuration!", ex);
-        }
-        plugin.getCommandRegistrar().reload();
-        plugin.getRepairer().reload();
-        plugin.getMessenger().send(context, "reload");
+        // Reloads off the main thread
+        plugin.reload().whenComplete((settings, ex) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (ex != null)
+                plugin.getLogger().log(Level.SEVERE, "An error occurred whilst reloading plugin configuration!", ex);
+            plugin.getMessenger().send(context, "reload");
+        }));
     }
 }
\ No newline at end of file
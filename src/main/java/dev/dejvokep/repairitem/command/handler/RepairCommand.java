@@ -17,18 +17,33 @@ package dev.dejvokep.repairitem.command.handler;
 
 import cloud.commandframework.context.CommandContext;
 import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.cluster.ClusterRepair;
+import dev.dejvokep.repairitem.cluster.ClusterService;
 import dev.dejvokep.repairitem.command.function.CommandFunction;
 import dev.dejvokep.repairitem.command.function.FunctionHandler;
 import dev.dejvokep.repairitem.command.wrapper.Sender;
 import dev.dejvokep.repairitem.command.wrapper.Target;
-import dev.dejvokep.repairitem.repair.RepairResult;
+import dev.dejvokep.repairitem.listener.OfflineRepairListener;
+import dev.dejvokep.repairitem.offline.OfflineRepairService;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import dev.dejvokep.repairitem.stats.CommandTimings;
+import dev.dejvokep.repairitem.utils.Messages;
+import dev.dejvokep.repairitem.utils.Placeholder;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
 
 /**
  * Repair functions command handler.
+ * <p>
+ * Commands are executed off the main thread. The handler prepares the invocation (argument and target checks, message
+ * replacements) right away, hops to the main thread only to resolve the target players and touch their inventories,
+ * and then sends the messages off the main thread again. Time spent waiting for a hop is not counted into the
+ * {@link CommandTimings timings}.
  */
 public class RepairCommand implements FunctionHandler {
 
@@ -48,85 +63,229 @@ public class RepairCommand implements FunctionHandler {
 
     @Override
     public void accept(@NotNull CommandContext<CommandSender> context) {
+        CommandTimings timings = new CommandTimings(function);
         Sender sender = Sender.of(context.getSender());
         String targetName = context.getOrDefault("target", null);
 
+        // Issuing for the sender, which cannot be a console
+        if (targetName == null && !(context.getSender() instanceof Player)) {
+            sendError(context, timings, "repair.sender.error.players-only", null);
+            return;
+        }
+
+        // Prepare off the main thread
+        boolean all = targetName != null && plugin.getCommandRegistrar().getAllTarget().contains(targetName);
+        Messages messages = plugin.getMessenger().getMessages();
+        String senderReplacement = sender.getReplacement(messages);
+
+        // Resolve and repair on the main thread
+        timings.suspend();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            timings.resume();
+            accept(context, sender, targetName, all, messages, senderReplacement, timings);
+        });
+    }
+
+    /**
+     * Resolves the target and runs the repair. Must be called from the main thread.
+     *
+     * @param context           the command context
+     * @param sender            the sender
+     * @param targetName        name of the target, or <code>null</code> if issuing for the sender
+     * @param all               whether the target refers to all players
+     * @param messages          the compiled messages
+     * @param senderReplacement the replacement for the <code>{sender}</code> placeholder
+     * @param timings           the timings
+     */
+    private void accept(@NotNull CommandContext<CommandSender> context, @NotNull Sender sender, @Nullable String targetName, boolean all, @NotNull Messages messages, @NotNull String senderReplacement, @NotNull CommandTimings timings) {
         // Issuing for the sender
         if (targetName == null) {
-            // Cannot be issued by a console
-            if (!(context.getSender() instanceof Player)) {
-                plugin.getMessenger().send(context, "repair.sender.error.players-only");
+            // Went offline since issued
+            if (!((Player) context.getSender()).isOnline()) {
+                finish(timings, context.getSender());
                 return;
             }
 
-            run(function, sender, Target.of((Player) context.getSender()));
+            run(sender, Target.of((Player) context.getSender()), messages, senderReplacement, timings);
             return;
         }
 
         // Issuing for all players
-        if (plugin.getCommandRegistrar().getAllTarget().contains(targetName)) {
+        if (all) {
+            // Across the network
+            ClusterService clusterService = plugin.getClusterService();
+            if (clusterService != null) {
+                runCluster(clusterService, sender, messages, senderReplacement, timings);
+                return;
+            }
+
             if (Bukkit.getOnlinePlayers().isEmpty()) {
-                plugin.getMessenger().send(context, "repair.sender.error.player-offline", message -> message.replace("{target}", plugin.getConfiguration().getString(Target.ROUTE_REPLACEMENT_ALL)));
+                sendError(context, timings, "repair.sender.error.player-offline", messages.getAllReplacement());
                 return;
             }
 
-            run(function, sender, Target.online());
+            run(sender, Target.online(), messages, senderReplacement, timings);
+            return;
         }
 
         // Issuing for one player
         Player player = Bukkit.getPlayerExact(targetName);
         if (player == null) {
-            plugin.getMessenger().send(context, "repair.sender.error.player-offline", message -> message.replace("{target}", targetName));
+            // Repair the offline player's data
+            OfflineRepairService offlineRepairService = plugin.getOfflineRepairService();
+            if (offlineRepairService != null && context.getSender().hasPermission(OfflineRepairListener.PERMISSION)) {
+                // The job sends the messages
+                offlineRepairService.submit(context.getSender(), function, targetName);
+                timings.since(CommandTimings.Phase.TARGET, timings.getStart());
+                finish(timings, context.getSender());
+                return;
+            }
+
+            sendError(context, timings, "repair.sender.error.player-offline", targetName);
             return;
         }
 
-        run(function, sender, Target.of(player));
+        run(sender, Target.of(player), messages, senderReplacement, timings);
     }
 
     /**
-     * Runs the repair function invoked by the sender for the given target. Sends the sender and target the
-     * corresponding messages.
+     * Sends the given error message to the sender of the given context off the main thread,
+     * ending the target phase and the command.
      *
-     * @param function the function to run
-     * @param sender   the sender
-     * @param target   the target
+     * @param context   the command context
+     * @param timings   the timings
+     * @param messageId ID of the message to send
+     * @param target    the replacement for the <code>{target}</code> placeholder, or <code>null</code> if none
      */
-    private void run(@NotNull CommandFunction function, @NotNull Sender sender, @NotNull Target target) {
-        String targetReplacement = target.getReplacement(sender.get(), plugin.getConfiguration());
-        String senderReplacement = sender.getReplacement(plugin.getConfiguration());
+    private void sendError(@NotNull CommandContext<CommandSender> context, @NotNull CommandTimings timings, @NotNull String messageId, @Nullable String target) {
+        timings.since(CommandTimings.Phase.TARGET, timings.getStart());
+        dispatch(timings, context.getSender(), () -> {
+            if (target == null)
+                plugin.getMessenger().send(context, messageId);
+            else
+                plugin.getMessenger().send(context, messageId, Placeholder.TARGET, target);
+        });
+    }
+
+    /**
+     * Runs the repair function invoked by the sender for all players across the network. Must be called from the main
+     * thread.
+     * <p>
+     * The local players are repaired as a {@link dev.dejvokep.repairitem.repair.MassRepairScheduler mass repair} and
+     * the sender receives one message merging the results of all servers.
+     *
+     * @param clusterService    the cluster service
+     * @param sender            the sender
+     * @param messages          the compiled messages
+     * @param senderReplacement the replacement for the <code>{sender}</code> placeholder
+     * @param timings           the timings
+     */
+    private void runCluster(@NotNull ClusterService clusterService, @NotNull Sender sender, @NotNull Messages messages, @NotNull String senderReplacement, @NotNull CommandTimings timings) {
+        timings.since(CommandTimings.Phase.TARGET, timings.getStart());
+        String targetReplacement = messages.getAllReplacement();
+
+        ClusterRepair repair = clusterService.submit(function, senderReplacement,
+                globalResult -> plugin.getMessenger().sendRepairToSender(sender.get(), function, globalResult, targetReplacement));
+
+        // Nobody to repair on this server
+        Collection<? extends Player> players = Bukkit.getOnlinePlayers();
+        if (players.isEmpty()) {
+            repair.complete(new RepairAccumulator());
+        } else {
+            plugin.getMassRepairScheduler().submit(function, players,
+                    (player, localResult) -> plugin.getMessenger().sendRepairToTarget(player, function, localResult, senderReplacement),
+                    localResult -> {
+                        plugin.getStats().record(localResult);
+                        repair.complete(localResult);
+                    });
+        }
+        finish(timings, sender.get());
+    }
+
+    /**
+     * Runs the repair function invoked by the sender for the given target. Must be called from the main thread.
+     * <p>
+     * Only the repair itself runs on the main thread; the sender and target are sent the corresponding messages off
+     * the main thread afterwards. Repairs for multiple players are
+     * {@link dev.dejvokep.repairitem.repair.MassRepairScheduler scheduled} across multiple ticks and the sender
+     * receives one aggregated message once finished.
+     *
+     * @param sender            the sender
+     * @param target            the target
+     * @param messages          the compiled messages
+     * @param senderReplacement the replacement for the <code>{sender}</code> placeholder
+     * @param timings           the timings
+     */
+    private void run(@NotNull Sender sender, @NotNull Target target, @NotNull Messages messages, @NotNull String senderReplacement, @NotNull CommandTimings timings) {
+        timings.since(CommandTimings.Phase.TARGET, timings.getStart());
+        String targetReplacement = target.getReplacement(sender.get(), messages);
 
         // For one player
         if (target.getPlayers().size() == 1) {
             Player player = target.getOne();
-            RepairResult result = plugin.getRepairer().repair(player, function);
-
-            plugin.getMessenger().send(sender.get(), "repair.sender." + result.getStatus().getPath(function), message -> message
-                    .replace("{target}", targetReplacement)
-                    .replace("{repaired}", String.valueOf(result.getRepaired())));
+            RepairAccumulator result = new RepairAccumulator();
+            plugin.getRepairer().repair(player, function, result, timings);
+            plugin.getStats().record(result);
 
-            // Do not send both the messages if the target and sender is the same
-            if (player == sender.get())
-                return;
-
-            plugin.getMessenger().send(player, "repair.target." + result.getStatus().getPath(function), message -> message
-                    .replace("{sender}", senderReplacement)
-                    .replace("{repaired}", String.valueOf(result.getRepaired())));
+            dispatch(timings, sender.get(), () -> {
+                plugin.getMessenger().sendRepairToSender(sender.get(), function, result, targetReplacement);
+                // Do not send both the messages if the target and sender is the same
+                if (player != sender.get())
+                    plugin.getMessenger().sendRepairToTarget(player, function, result, senderReplacement);
+            });
             return;
         }
 
-        RepairResult globalResult = RepairResult.empty();
-        for (Player player : target.getPlayers()) {
-            RepairResult localResult = plugin.getRepairer().repair(player, function);
-            globalResult = globalResult.merge(localResult);
+        // Spread across multiple ticks
+        plugin.getMassRepairScheduler().submit(function, target.getPlayers(),
+                (player, localResult) -> plugin.getMessenger().sendRepairToTarget(player, function, localResult, senderReplacement),
+                globalResult -> {
+                    plugin.getStats().record(globalResult);
+                    plugin.getMessenger().sendRepairToSender(sender.get(), function, globalResult, targetReplacement);
+                });
+        finish(timings, sender.get());
+    }
+
+    /**
+     * Sends messages off the main thread (right away, if already off the main thread), then finishes the command.
+     *
+     * @param timings  the timings
+     * @param sender   sender of the command
+     * @param messages the task sending the messages
+     */
+    private void dispatch(@NotNull CommandTimings timings, @NotNull CommandSender sender, @NotNull Runnable messages) {
+        Runnable task = () -> {
+            long start = System.nanoTime();
+            try {
+                messages.run();
+            } finally {
+                timings.since(CommandTimings.Phase.MESSAGE, start);
+                finish(timings, sender);
+            }
+        };
 
-            plugin.getMessenger().send(player, "repair.target." + localResult.getStatus().getPath(function), message -> message
-                    .replace("{sender}", senderReplacement)
-                    .replace("{repaired}", String.valueOf(localResult.getRepaired())));
+        // Already off the main thread
+        if (!Bukkit.isPrimaryThread()) {
+            task.run();
+            return;
         }
 
-        final int repaired = globalResult.getRepaired();
-        plugin.getMessenger().send(sender.get(), "repair.sender." + globalResult.getStatus().getPath(function), message -> message
-                .replace("{target}", targetReplacement)
-                .replace("{repaired}", String.valueOf(repaired)));
+        timings.suspend();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            timings.resume();
+            task.run();
+        });
+    }
+
+    /**
+     * Finishes the command, recording its latency into the {@link RepairItem#getStats() statistics} and passing the
+     * timings to the {@link dev.dejvokep.repairitem.stats.SlowCommandDetector}.
+     *
+     * @param timings the timings
+     * @param sender  sender of the command
+     */
+    private void finish(@NotNull CommandTimings timings, @NotNull CommandSender sender) {
+        plugin.getStats().recordCommand(function, System.nanoTime() - timings.getStart());
+        plugin.getSlowCommandDetector().finish(timings, sender);
     }
 }
\ No newline at end of file
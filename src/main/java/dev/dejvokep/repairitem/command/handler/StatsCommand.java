@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.command.handler;
+
+import cloud.commandframework.context.CommandContext;
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.command.function.FunctionHandler;
+import dev.dejvokep.repairitem.repair.BlockedItemIndex;
+import dev.dejvokep.repairitem.repair.VerdictCache;
+import dev.dejvokep.repairitem.stats.LatencyHistogram;
+import dev.dejvokep.repairitem.stats.RepairStats;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Statistics function command handler.
+ */
+public class StatsCommand implements FunctionHandler {
+
+    private final RepairItem plugin;
+
+    /**
+     * Initializes the command handler.
+     *
+     * @param plugin the plugin instance
+     */
+    public StatsCommand(@NotNull RepairItem plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void accept(@NotNull CommandContext<CommandSender> context) {
+        RepairStats stats = plugin.getStats();
+        CommandSender sender = context.getSender();
+
+        // Items
+        long repairs = stats.getRepairs();
+        plugin.getMessenger().send(sender, "stats.header", (placeholder, builder) -> {
+            switch (placeholder) {
+                case REPAIRED:
+                    builder.append(stats.getRepaired());
+                    return;
+                case BLOCKED:
+                    builder.append(stats.getBlocked());
+                    return;
+                case INTACT:
+                    builder.append(stats.getIntact());
+                    return;
+                case EVALUATIONS:
+                    builder.append(stats.getEvaluations());
+                    return;
+                case AVERAGE:
+                    builder.append(String.format(Locale.ROOT, "%.1f", repairs == 0 ? 0D : (double) stats.getEvaluations() / repairs));
+                    return;
+                default:
+                    builder.append(placeholder.getToken());
+            }
+        });
+
+        // Functions
+        for (CommandFunction function : CommandFunction.values()) {
+            LatencyHistogram latency = stats.getCommandLatency(function);
+            if (latency.getCount() > 0)
+                send(sender, "stats.function", latency, function.getPath());
+        }
+
+        // Mass repairs
+        if (stats.getMassRepairDuration().getCount() > 0)
+            send(sender, "stats.mass-repair", stats.getMassRepairDuration(), "");
+
+        // Blocked items
+        BlockedItemIndex blockedItems = plugin.getSettings().getBlockedItems();
+        plugin.getMessenger().send(sender, "stats.blocked-items", (placeholder, builder) -> {
+            switch (placeholder) {
+                case COUNT:
+                    builder.append(blockedItems.size());
+                    return;
+                case SIZE:
+                    builder.append(String.format(Locale.ROOT, "%.1f", blockedItems.estimateSize() / 1024D));
+                    return;
+                default:
+                    builder.append(placeholder.getToken());
+            }
+        });
+
+        // Verdict cache
+        VerdictCache verdicts = plugin.getRepairer().getVerdictCache();
+        if (verdicts != null) {
+            plugin.getMessenger().send(sender, "stats.verdict-cache", (placeholder, builder) -> {
+                switch (placeholder) {
+                    case HITS:
+                        builder.append(verdicts.getHits());
+                        return;
+                    case MISSES:
+                        builder.append(verdicts.getMisses());
+                        return;
+                    case SIZE:
+                        builder.append(verdicts.size()).append('/').append(verdicts.getCapacity());
+                        return;
+                    default:
+                        builder.append(placeholder.getToken());
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the given latency statistic.
+     *
+     * @param sender    the sender to send to
+     * @param messageId ID of the message to send
+     * @param latency   the statistic
+     * @param function  the replacement for the <code>{function}</code> placeholder
+     */
+    private void send(@NotNull CommandSender sender, @NotNull String messageId, @NotNull LatencyHistogram latency, @NotNull String function) {
+        plugin.getMessenger().send(sender, messageId, (placeholder, builder) -> {
+            switch (placeholder) {
+                case FUNCTION:
+                    builder.append(function);
+                    return;
+                case COUNT:
+                    builder.append(latency.getCount());
+                    return;
+                case MEAN:
+                    appendMillis(builder, latency.getMean());
+                    return;
+                case P99:
+                    appendMillis(builder, latency.getPercentile(0.99));
+                    return;
+                default:
+                    builder.append(placeholder.getToken());
+            }
+        });
+    }
+
+    /**
+     * Appends the given time in milliseconds, rounded to two decimal places.
+     *
+     * @param builder the builder to append to
+     * @param nanos   the time in nanoseconds
+     */
+    private static void appendMillis(@NotNull StringBuilder builder, long nanos) {
+        builder.append(String.format(Locale.ROOT, "%.2f", nanos / 1_000_000D));
+    }
+}
@@ -15,8 +15,8 @@
  */
 package dev.dejvokep.repairitem.command.wrapper;
 
-import dev.dejvokep.boostedyaml.YamlDocument;
 import dev.dejvokep.boostedyaml.route.Route;
+import dev.dejvokep.repairitem.utils.Messages;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.jetbrains.annotations.NotNull;
@@ -45,11 +45,11 @@ public class Sender {
     /**
      * Returns the replacement for the <code>{sender}</code> placeholder.
      *
-     * @param config the config
+     * @param messages the compiled messages
      * @return the placeholder replacement
      */
-    public String getReplacement(@NotNull YamlDocument config) {
-        return sender instanceof ConsoleCommandSender ? config.getString(ROUTE_REPLACEMENT_CONSOLE) : sender.getName();
+    public String getReplacement(@NotNull Messages messages) {
+        return sender instanceof ConsoleCommandSender ? messages.getConsoleReplacement() : sender.getName();
     }
 
     /**
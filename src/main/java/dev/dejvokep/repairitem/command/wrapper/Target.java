@@ -15,8 +15,8 @@
  */
 package dev.dejvokep.repairitem.command.wrapper;
 
-import dev.dejvokep.boostedyaml.YamlDocument;
 import dev.dejvokep.boostedyaml.route.Route;
+import dev.dejvokep.repairitem.utils.Messages;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -56,17 +56,17 @@ public class Target {
     /**
      * Returns the replacement for the <code>{target}</code> placeholder.
      *
-     * @param sender the sender of the command
-     * @param config the config
+     * @param sender   the sender of the command
+     * @param messages the compiled messages
      * @return the placeholder replacement
      */
-    public String getReplacement(@NotNull CommandSender sender, @NotNull YamlDocument config) {
+    public String getReplacement(@NotNull CommandSender sender, @NotNull Messages messages) {
         if (players.size() > 1)
-            return config.getString(ROUTE_REPLACEMENT_ALL);
+            return messages.getAllReplacement();
 
         Player one = getOne();
         if (one == sender)
-            return config.getString(ROUTE_REPLACEMENT_SELF);
+            return messages.getSelfReplacement();
 
         return one.getName();
     }
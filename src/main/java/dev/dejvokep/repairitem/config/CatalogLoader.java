@@ -0,0 +1,296 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.config;
+
+import dev.dejvokep.repairitem.repair.BlockedItem;
+import dev.dejvokep.repairitem.repair.BlockedItemIndex;
+import dev.dejvokep.repairitem.repair.RulePool;
+import dev.dejvokep.repairitem.repair.TagRule;
+import org.jetbrains.annotations.NotNull;
+import org.snakeyaml.engine.v2.api.LoadSettings;
+import org.snakeyaml.engine.v2.api.lowlevel.Parse;
+import org.snakeyaml.engine.v2.events.Event;
+import org.snakeyaml.engine.v2.events.ScalarEvent;
+import org.snakeyaml.engine.v2.exceptions.YamlEngineException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Loader of blocked item catalogs - files in the {@link #FOLDER catalogs folder}, each containing a list of blocked
+ * items in the same format as the <code>blocked-items</code> section of the configuration.
+ * <p>
+ * Catalogs are read using the low-level (event) YAML parser, so only one entry is held in memory at a time, instead of
+ * the whole document tree. As loading takes a while for large catalogs, it must not be called from the main thread.
+ * <p>
+ * Invalid entries are skipped and one report is logged per file. If a file cannot be read (e.g. has invalid syntax),
+ * it is skipped as a whole.
+ */
+public class CatalogLoader {
+
+    /**
+     * Name of the catalogs folder, within the data folder.
+     */
+    public static final String FOLDER = "catalogs";
+
+    /**
+     * Maximum amount of errors logged per file.
+     */
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private final Logger logger;
+
+    /**
+     * Initializes the loader.
+     *
+     * @param logger the logger to log the reports to
+     */
+    public CatalogLoader(@NotNull Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Loads all catalogs from the given folder, in alphabetical order, into the given lists.
+     *
+     * @param folder       the catalogs folder
+     * @param pool         the pool to share the strings through
+     * @param blockedItems the list to add the loaded blocked items to
+     * @param tagRules     the list to add the loaded tag rules to
+     */
+    public void load(@NotNull File folder, @NotNull RulePool pool, @NotNull List<BlockedItem> blockedItems, @NotNull List<TagRule> tagRules) {
+        for (File file : list(folder))
+            load(file, folder.getName() + "/" + file.getName(), pool, blockedItems, tagRules);
+    }
+
+    /**
+     * Loads one catalog into the given lists and logs the report. Entries are only added to the lists if the file was
+     * read completely.
+     *
+     * @param file         the catalog file
+     * @param name         name of the catalog to report
+     * @param pool         the pool to share the strings through
+     * @param blockedItems the list to add the loaded blocked items to
+     * @param tagRules     the list to add the loaded tag rules to
+     */
+    private void load(@NotNull File file, @NotNull String name, @NotNull RulePool pool, @NotNull List<BlockedItem> blockedItems, @NotNull List<TagRule> tagRules) {
+        long start = System.nanoTime();
+        List<BlockedItem> loadedItems = new ArrayList<>();
+        List<TagRule> loadedTags = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            read(new Parse(LoadSettings.builder().setLabel(name).build()).parseReader(reader).iterator(), pool, loadedItems, loadedTags, errors);
+        } catch (IOException | YamlEngineException ex) {
+            logger.severe("Catalog " + name + " could not be read and was skipped: " + ex.getMessage());
+            return;
+        }
+
+        // Add
+        blockedItems.addAll(loadedItems);
+        tagRules.addAll(loadedTags);
+
+        // Report
+        int loaded = loadedItems.size() + loadedTags.size();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (errors.isEmpty()) {
+            logger.info("Loaded " + loaded + " blocked items from catalog " + name + " in " + millis + " ms.");
+            return;
+        }
+
+        StringBuilder report = new StringBuilder("Loaded ").append(loaded).append(" blocked items from catalog ").append(name)
+                .append(" in ").append(millis).append(" ms; ").append(errors.size()).append(" could not be loaded:");
+        for (int i = 0; i < Math.min(errors.size(), MAX_REPORTED_ERRORS); i++)
+            report.append("\n- ").append(errors.get(i));
+        if (errors.size() > MAX_REPORTED_ERRORS)
+            report.append("\n- ... and ").append(errors.size() - MAX_REPORTED_ERRORS).append(" more");
+        logger.warning(report.toString());
+    }
+
+    /**
+     * Reads the entries of a catalog from the given events, compiling them one by one.
+     *
+     * @param events       the events of the catalog
+     * @param pool         the pool to share the strings through
+     * @param blockedItems the list to add the loaded blocked items to
+     * @param tagRules     the list to add the loaded tag rules to
+     * @param errors       the list to add the errors of invalid entries to
+     * @throws YamlEngineException if the catalog is not a list
+     */
+    private void read(@NotNull Iterator<Event> events, @NotNull RulePool pool, @NotNull List<BlockedItem> blockedItems, @NotNull List<TagRule> tagRules, @NotNull List<String> errors) {
+        // Stream start
+        next(events);
+        // Empty file
+        if (next(events).getEventId() != Event.ID.DocumentStart)
+            return;
+        if (next(events).getEventId() != Event.ID.SequenceStart)
+            throw new YamlEngineException("The catalog must be a list of blocked items.");
+
+        // Entries
+        Event event;
+        while ((event = next(events)).getEventId() != Event.ID.SequenceEnd) {
+            int line = line(event);
+
+            // Not a section
+            if (event.getEventId() != Event.ID.MappingStart) {
+                skip(event, events);
+                errors.add("Line " + line + ": not a section");
+                continue;
+            }
+
+            try {
+                BlockedItemIndex.compile(readEntry(events), pool, blockedItems, tagRules);
+            } catch (IllegalArgumentException ex) {
+                errors.add("Line " + line + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads one entry from the given events, whose mapping start event was already consumed. The entry is always
+     * consumed until its end.
+     *
+     * @param events the events of the catalog
+     * @return the entry
+     * @throws IllegalArgumentException if the entry has an invalid structure
+     */
+    @NotNull
+    private Map<String, Object> readEntry(@NotNull Iterator<Event> events) {
+        Map<String, Object> entry = new HashMap<>();
+        String error = null;
+
+        Event event;
+        while ((event = next(events)).getEventId() != Event.ID.MappingEnd) {
+            // Key
+            if (event.getEventId() != Event.ID.Scalar) {
+                skip(event, events);
+                skip(next(events), events);
+                error = "invalid key";
+                continue;
+            }
+            String key = ((ScalarEvent) event).getValue();
+
+            // Value
+            Event value = next(events);
+            if (value.getEventId() == Event.ID.Scalar) {
+                entry.put(key, resolve((ScalarEvent) value));
+            } else if (value.getEventId() == Event.ID.SequenceStart) {
+                List<Object> list = new ArrayList<>();
+                while ((value = next(events)).getEventId() != Event.ID.SequenceEnd) {
+                    if (value.getEventId() == Event.ID.Scalar) {
+                        list.add(resolve((ScalarEvent) value));
+                    } else {
+                        skip(value, events);
+                        error = "invalid element of " + key;
+                    }
+                }
+                entry.put(key, list);
+            } else {
+                skip(value, events);
+                error = "invalid " + key;
+            }
+        }
+
+        if (error != null)
+            throw new IllegalArgumentException(error);
+        return entry;
+    }
+
+    /**
+     * Skips the node starting with the given event, including all its children.
+     *
+     * @param event  the first event of the node
+     * @param events the events of the catalog
+     */
+    private void skip(@NotNull Event event, @NotNull Iterator<Event> events) {
+        int depth = isStart(event) ? 1 : 0;
+        while (depth > 0) {
+            event = next(events);
+            if (isStart(event))
+                depth++;
+            else if (event.getEventId() == Event.ID.MappingEnd || event.getEventId() == Event.ID.SequenceEnd)
+                depth--;
+        }
+    }
+
+    /**
+     * Returns whether the given event starts a collection.
+     *
+     * @param event the event
+     * @return whether the event starts a collection
+     */
+    private boolean isStart(@NotNull Event event) {
+        return event.getEventId() == Event.ID.MappingStart || event.getEventId() == Event.ID.SequenceStart;
+    }
+
+    /**
+     * Returns the next event.
+     *
+     * @param events the events of the catalog
+     * @return the next event
+     * @throws YamlEngineException if there are no more events
+     */
+    @NotNull
+    private Event next(@NotNull Iterator<Event> events) {
+        if (!events.hasNext())
+            throw new YamlEngineException("Unexpected end of the file.");
+        return events.next();
+    }
+
+    /**
+     * Resolves the value of the given scalar. Plain (unquoted) booleans are resolved to {@link Boolean}, all other
+     * values are kept as strings.
+     *
+     * @param scalar the scalar to resolve
+     * @return the resolved value
+     */
+    @NotNull
+    private Object resolve(@NotNull ScalarEvent scalar) {
+        String value = scalar.getValue();
+        if (scalar.isPlain() && (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")))
+            return Boolean.parseBoolean(value);
+        return value;
+    }
+
+    /**
+     * Returns the (1-based) line the given event starts at.
+     *
+     * @param event the event
+     * @return the line, or <code>0</code> if unknown
+     */
+    private int line(@NotNull Event event) {
+        return event.getStartMark().map(mark -> mark.getLine() + 1).orElse(0);
+    }
+
+    /**
+     * Lists the catalog files (with the <code>.yml</code> or <code>.yaml</code> extension) in the given folder, in
+     * alphabetical order.
+     *
+     * @param folder the catalogs folder
+     * @return the catalog files
+     */
+    @NotNull
+    public static File[] list(@NotNull File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".yml") || name.endsWith(".yaml"));
+        if (files == null)
+            return new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.config;
+
+import dev.dejvokep.repairitem.RepairItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Watches the configuration file for changes and reloads it incrementally, once no further change was detected within
+ * the debounce period. Only the {@link Settings.Part parts} of the settings whose sections changed are rebuilt.
+ */
+public class ConfigWatcher implements Runnable {
+
+    /**
+     * Path to the watcher enabled option.
+     */
+    public static final String PATH_ENABLED = "config-watcher.enabled";
+    /**
+     * Path to the debounce period (in milliseconds).
+     */
+    public static final String PATH_DEBOUNCE = "config-watcher.debounce";
+
+    private final RepairItem plugin;
+    private final Path directory, file;
+    private final long debounce;
+    private WatchService service;
+    private Thread thread;
+
+    /**
+     * Initializes the watcher. The watcher must be {@link #start() started} to take effect.
+     *
+     * @param plugin   the plugin instance
+     * @param file     the configuration file to watch
+     * @param debounce the debounce period in milliseconds
+     */
+    public ConfigWatcher(@NotNull RepairItem plugin, @NotNull Path file, long debounce) {
+        this.plugin = plugin;
+        this.file = file.getFileName();
+        this.directory = file.toAbsolutePath().getParent();
+        this.debounce = Math.max(0, debounce);
+    }
+
+    /**
+     * Starts watching the file on a new daemon thread.
+     *
+     * @throws IOException if failed to register the watch service
+     */
+    public void start() throws IOException {
+        service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this, "RepairItem Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    public void stop() {
+        if (thread != null)
+            thread.interrupt();
+        try {
+            if (service != null)
+                service.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean pending = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Wait for a change, or until the debounce period elapses
+                WatchKey key = pending ? service.poll(debounce, TimeUnit.MILLISECONDS) : service.take();
+
+                // Quiet for the whole period
+                if (key == null) {
+                    pending = false;
+                    reload();
+                    continue;
+                }
+
+                // Changes to the file
+                for (WatchEvent<?> event : key.pollEvents())
+                    if (file.equals(event.context()))
+                        pending = true;
+
+                // Invalid
+                if (!key.reset())
+                    return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Reloads the configuration and logs the rebuilt parts.
+     */
+    private void reload() {
+        plugin.reload(true).whenComplete((settings, ex) -> {
+            // Failed
+            if (ex != null) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to apply the changes made to the config file!", ex);
+                return;
+            }
+
+            // Nothing to rebuild
+            Set<Settings.Part> rebuilt = settings.getRebuilt();
+            if (rebuilt.isEmpty())
+                return;
+
+            plugin.getLogger().info("Applied changes made to the config file (rebuilt: " + rebuilt.stream().map(Settings.Part::getPath).collect(Collectors.joining(", ")) + ").");
+        });
+    }
+
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.config;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.boostedyaml.block.implementation.Section;
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.repair.BlockedItemIndex;
+import dev.dejvokep.repairitem.utils.Messages;
+import dev.dejvokep.repairitem.utils.Messenger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the settings compiled from the configuration.
+ * <p>
+ * Snapshots are compiled off the main thread and published by a single reference swap, so readers never observe a
+ * partially built state.
+ */
+public class Settings {
+
+    /**
+     * Independently rebuildable parts of the settings, each compiled from one section of the configuration.
+     */
+    public enum Part {
+        /**
+         * The blocked item index.
+         */
+        BLOCKED_ITEMS(BlockedItemIndex.PATH_BLOCKED_ITEMS),
+        /**
+         * The compiled messages.
+         */
+        MESSAGES(Messenger.MESSAGES_SECTION),
+        /**
+         * The target arguments.
+         */
+        TARGET("command.target");
+
+        private final String path;
+
+        /**
+         * Initializes the part.
+         *
+         * @param path path to the section the part is compiled from
+         */
+        Part(@NotNull String path) {
+            this.path = path;
+        }
+
+        /**
+         * Returns path to the section the part is compiled from.
+         *
+         * @return path to the section
+         */
+        @NotNull
+        public String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * Path to the arguments representing all online players.
+     */
+    public static final String PATH_TARGET_ALL = "command.target.all";
+
+    /**
+     * Path to the per-tick time budget of mass repairs, in milliseconds.
+     */
+    public static final String PATH_MASS_REPAIR_TICK_BUDGET = "mass-repair.tick-budget";
+
+    /**
+     * Path to the TPS below which the budget of mass repairs is halved.
+     */
+    public static final String PATH_MASS_REPAIR_MIN_TPS = "mass-repair.min-tps";
+    /**
+     * Path to the auto-repair debounce period (in ticks).
+     */
+    public static final String PATH_AUTO_REPAIR_DEBOUNCE = "auto-repair.debounce";
+    /**
+     * Path to the auto-repair tick budget (in milliseconds).
+     */
+    public static final String PATH_AUTO_REPAIR_TICK_BUDGET = "auto-repair.tick-budget";
+    /**
+     * Path to the remaining durability at which items are auto-repaired right away.
+     */
+    public static final String PATH_AUTO_REPAIR_URGENT_DURABILITY = "auto-repair.urgent-durability";
+    /**
+     * Path to the region repair tick budget (in milliseconds).
+     */
+    public static final String PATH_REGION_REPAIR_TICK_BUDGET = "region-repair.tick-budget";
+    /**
+     * Path to the region repair progress report interval (in seconds).
+     */
+    public static final String PATH_REGION_REPAIR_PROGRESS_INTERVAL = "region-repair.progress-interval";
+    /**
+     * Path to the maximum amount of chunks of a region repair.
+     */
+    public static final String PATH_REGION_REPAIR_MAX_CHUNKS = "region-repair.max-chunks";
+    /**
+     * Path to the default radius of a region repair (in blocks).
+     */
+    public static final String PATH_REGION_REPAIR_DEFAULT_RADIUS = "region-repair.default-radius";
+    /**
+     * Path to whether to repair items nested in shulker boxes and bundles.
+     */
+    public static final String PATH_NESTED_REPAIR_ENABLED = "nested-repair.enabled";
+    /**
+     * Path to the maximum depth of nested containers to open.
+     */
+    public static final String PATH_NESTED_REPAIR_MAX_DEPTH = "nested-repair.max-depth";
+    /**
+     * Path to the maximum amount of nested items visited per repair.
+     */
+    public static final String PATH_NESTED_REPAIR_MAX_ITEMS = "nested-repair.max-items";
+    /**
+     * Path to the slow command threshold (in milliseconds).
+     */
+    public static final String PATH_SLOW_COMMAND_THRESHOLD = "slow-command.threshold";
+    /**
+     * Path to the slow command log interval (in seconds).
+     */
+    public static final String PATH_SLOW_COMMAND_LOG_INTERVAL = "slow-command.log-interval";
+
+    /**
+     * Nanoseconds in one millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000D;
+
+    private final YamlDocument configuration;
+    private final Set<Part> rebuilt;
+    private final BlockedItemIndex blockedItems;
+    private final Set<String> allTarget;
+    private final Messages messages;
+    private final long massRepairBudget;
+    private final double massRepairMinTps;
+    private final long autoRepairDebounce, autoRepairBudget;
+    private final int autoRepairUrgentDurability;
+    private final long regionRepairBudget, regionRepairProgressInterval;
+    private final int regionRepairMaxChunks, regionRepairDefaultRadius;
+    private final int nestedRepairDepth, nestedRepairMaxItems;
+    private final long slowCommandThreshold, slowCommandLogInterval;
+
+    /**
+     * Compiles the settings from the given configuration, including the blocked item catalogs. Must not be called from
+     * the main thread, except on enable, where the startup may block until the catalogs are loaded.
+     *
+     * @param plugin        the plugin instance
+     * @param configuration the configuration to compile from
+     */
+    public Settings(@NotNull RepairItem plugin, @NotNull YamlDocument configuration) {
+        this(plugin, configuration, true);
+    }
+
+    /**
+     * Compiles the settings from the given configuration. Catalogs must not be loaded when called from the main
+     * thread, except on enable.
+     *
+     * @param plugin        the plugin instance
+     * @param configuration the configuration to compile from
+     * @param catalogs      whether to load the blocked item catalogs
+     */
+    public Settings(@NotNull RepairItem plugin, @NotNull YamlDocument configuration, boolean catalogs) {
+        this(plugin, configuration, null, EnumSet.allOf(Part.class), catalogs);
+    }
+
+    /**
+     * Compiles the settings from the given configuration, rebuilding only the parts whose sections differ from the
+     * configuration the given previous settings were compiled from. The other parts are reused. Must not be called
+     * from the main thread.
+     *
+     * @param plugin        the plugin instance
+     * @param configuration the configuration to compile from
+     * @param previous      the previous settings
+     */
+    public Settings(@NotNull RepairItem plugin, @NotNull YamlDocument configuration, @NotNull Settings previous) {
+        this(plugin, configuration, previous, diff(previous.configuration, configuration), true);
+    }
+
+    /**
+     * Compiles the settings from the given configuration, rebuilding only the given parts. The other parts are
+     * reused from the given previous settings.
+     *
+     * @param plugin        the plugin instance
+     * @param configuration the configuration to compile from
+     * @param previous      the previous settings, or <code>null</code> to rebuild all parts
+     * @param rebuilt       the parts to rebuild
+     * @param catalogs      whether to load the blocked item catalogs, if rebuilding the blocked items
+     */
+    private Settings(@NotNull RepairItem plugin, @NotNull YamlDocument configuration, @Nullable Settings previous, @NotNull Set<Part> rebuilt, boolean catalogs) {
+        if (previous == null)
+            rebuilt = EnumSet.allOf(Part.class);
+
+        this.configuration = configuration;
+        this.rebuilt = Collections.unmodifiableSet(rebuilt);
+        this.blockedItems = rebuilt.contains(Part.BLOCKED_ITEMS) ? BlockedItemIndex.load(plugin, configuration, catalogs) : previous.blockedItems;
+        this.allTarget = rebuilt.contains(Part.TARGET) ? Collections.unmodifiableSet(new HashSet<>(configuration.getStringList(PATH_TARGET_ALL))) : previous.allTarget;
+        this.messages = rebuilt.contains(Part.MESSAGES) ? new Messages(configuration) : previous.messages;
+        this.massRepairBudget = (long) (configuration.getDouble(PATH_MASS_REPAIR_TICK_BUDGET, 2D) * NANOS_PER_MILLI);
+        this.massRepairMinTps = configuration.getDouble(PATH_MASS_REPAIR_MIN_TPS, 18D);
+        this.autoRepairDebounce = Math.max(0, configuration.getLong(PATH_AUTO_REPAIR_DEBOUNCE, 20L));
+        this.autoRepairBudget = (long) (configuration.getDouble(PATH_AUTO_REPAIR_TICK_BUDGET, 1D) * NANOS_PER_MILLI);
+        this.autoRepairUrgentDurability = configuration.getInt(PATH_AUTO_REPAIR_URGENT_DURABILITY, 10);
+        this.regionRepairBudget = (long) (configuration.getDouble(PATH_REGION_REPAIR_TICK_BUDGET, 2D) * NANOS_PER_MILLI);
+        this.regionRepairProgressInterval = (long) (configuration.getDouble(PATH_REGION_REPAIR_PROGRESS_INTERVAL, 5D) * 1000 * NANOS_PER_MILLI);
+        this.regionRepairMaxChunks = configuration.getInt(PATH_REGION_REPAIR_MAX_CHUNKS, 1024);
+        this.regionRepairDefaultRadius = Math.max(0, configuration.getInt(PATH_REGION_REPAIR_DEFAULT_RADIUS, 16));
+        this.nestedRepairDepth = configuration.getBoolean(PATH_NESTED_REPAIR_ENABLED, false) ? Math.max(0, configuration.getInt(PATH_NESTED_REPAIR_MAX_DEPTH, 2)) : 0;
+        this.nestedRepairMaxItems = Math.max(0, configuration.getInt(PATH_NESTED_REPAIR_MAX_ITEMS, 1024));
+        double threshold = configuration.getDouble(PATH_SLOW_COMMAND_THRESHOLD, 2D);
+        this.slowCommandThreshold = threshold < 0 ? -1 : (long) (threshold * NANOS_PER_MILLI);
+        this.slowCommandLogInterval = (long) (configuration.getDouble(PATH_SLOW_COMMAND_LOG_INTERVAL, 10D) * 1000 * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Returns the parts whose sections differ between the given configurations.
+     *
+     * @param previous the previous configuration
+     * @param current  the current configuration
+     * @return the parts which differ
+     */
+    @NotNull
+    public static Set<Part> diff(@NotNull YamlDocument previous, @NotNull YamlDocument current) {
+        Set<Part> parts = EnumSet.noneOf(Part.class);
+        for (Part part : Part.values())
+            if (!Objects.equals(valuesOf(previous, part.getPath()), valuesOf(current, part.getPath())))
+                parts.add(part);
+        return parts;
+    }
+
+    /**
+     * Returns a comparable representation of the value at the given path. For sections, returns a map of all their
+     * (deep) routes to the values, omitting the subsections.
+     *
+     * @param configuration the configuration
+     * @param path          the path
+     * @return the comparable representation of the value
+     */
+    @Nullable
+    private static Object valuesOf(@NotNull YamlDocument configuration, @NotNull String path) {
+        Object value = configuration.get(path);
+        if (!(value instanceof Section))
+            return value;
+
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<String, Object> entry : ((Section) value).getStringRouteMappedValues(true).entrySet())
+            if (!(entry.getValue() instanceof Section))
+                values.put(entry.getKey(), entry.getValue());
+        return values;
+    }
+
+    /**
+     * Returns the configuration these settings were compiled from. The document must not be modified.
+     *
+     * @return the configuration
+     */
+    @NotNull
+    public YamlDocument getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the parts which were rebuilt when compiling these settings; the others were reused from the previous
+     * settings.
+     *
+     * @return the rebuilt parts
+     */
+    @NotNull
+    public Set<Part> getRebuilt() {
+        return rebuilt;
+    }
+
+    /**
+     * Returns the index of blocked items.
+     *
+     * @return the index of blocked items
+     */
+    @NotNull
+    public BlockedItemIndex getBlockedItems() {
+        return blockedItems;
+    }
+
+    /**
+     * Returns the set of strings which can be specified as the <code>target</code> command argument to represent all
+     * online players.
+     *
+     * @return the set of placeholders representing all online players
+     */
+    @NotNull
+    public Set<String> getAllTarget() {
+        return allTarget;
+    }
+
+    /**
+     * Returns the compiled messages.
+     *
+     * @return the compiled messages
+     */
+    @NotNull
+    public Messages getMessages() {
+        return messages;
+    }
+
+    /**
+     * Returns the time which can be spent by mass repairs per tick, in nanoseconds.
+     *
+     * @return the per-tick budget of mass repairs
+     */
+    public long getMassRepairBudget() {
+        return massRepairBudget;
+    }
+
+    /**
+     * Returns the TPS below which the budget of mass repairs is halved.
+     *
+     * @return the TPS below which the budget is halved
+     */
+    public double getMassRepairMinTps() {
+        return massRepairMinTps;
+    }
+
+    /**
+     * Returns the amount of ticks after a slot is first damaged, before it is repaired automatically.
+     *
+     * @return the auto-repair debounce period in ticks
+     */
+    public long getAutoRepairDebounce() {
+        return autoRepairDebounce;
+    }
+
+    /**
+     * Returns the remaining durability at (or below) which a damaged item is repaired automatically right away,
+     * regardless of the debounce period.
+     *
+     * @return the urgent remaining durability
+     */
+    public int getAutoRepairUrgentDurability() {
+        return autoRepairUrgentDurability;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) which can be spent repairing automatically per tick.
+     *
+     * @return the auto-repair time budget per tick in nanoseconds
+     */
+    public long getAutoRepairBudget() {
+        return autoRepairBudget;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) which can be spent by region repairs per tick.
+     *
+     * @return the region repair time budget per tick in nanoseconds
+     */
+    public long getRegionRepairBudget() {
+        return regionRepairBudget;
+    }
+
+    /**
+     * Returns the interval (in nanoseconds) in which the progress of region repairs is reported.
+     *
+     * @return the region repair progress report interval in nanoseconds
+     */
+    public long getRegionRepairProgressInterval() {
+        return regionRepairProgressInterval;
+    }
+
+    /**
+     * Returns the maximum amount of chunks a region repair can span.
+     *
+     * @return the maximum amount of chunks of a region repair
+     */
+    public int getRegionRepairMaxChunks() {
+        return regionRepairMaxChunks;
+    }
+
+    /**
+     * Returns the radius (in blocks) of region repairs issued without one.
+     *
+     * @return the default radius of region repairs
+     */
+    public int getRegionRepairDefaultRadius() {
+        return regionRepairDefaultRadius;
+    }
+
+    /**
+     * Returns the maximum depth of nested containers (shulker boxes and bundles) opened by repairs, or <code>0</code>
+     * if nested repair is disabled.
+     *
+     * @return the maximum depth of nested containers
+     */
+    public int getNestedRepairDepth() {
+        return nestedRepairDepth;
+    }
+
+    /**
+     * Returns the maximum amount of nested items visited per repair.
+     *
+     * @return the maximum amount of nested items
+     */
+    public int getNestedRepairMaxItems() {
+        return nestedRepairMaxItems;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) above which commands are logged as slow, or <code>-1</code> if disabled.
+     *
+     * @return the slow command threshold in nanoseconds
+     */
+    public long getSlowCommandThreshold() {
+        return slowCommandThreshold;
+    }
+
+    /**
+     * Returns the minimal interval (in nanoseconds) between two slow command log entries.
+     *
+     * @return the slow command log interval in nanoseconds
+     */
+    public long getSlowCommandLogInterval() {
+        return slowCommandLogInterval;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.listener;
+
+import dev.dejvokep.repairitem.command.CommandRegistrar;
+import dev.dejvokep.repairitem.repair.AutoRepairQueue;
+import dev.dejvokep.repairitem.repair.DurabilityAccessor;
+import dev.dejvokep.repairitem.repair.ItemContext;
+import dev.dejvokep.repairitem.repair.SlotPlan;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerItemDamageEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener queueing damaged items of players with the auto-repair permission into the {@link AutoRepairQueue}.
+ */
+public class AutoRepairListener implements Listener {
+
+    /**
+     * Path to the auto-repair enabled option.
+     */
+    public static final String PATH_ENABLED = "auto-repair.enabled";
+
+    /**
+     * Permission required for items to be repaired automatically.
+     */
+    public static final String PERMISSION = CommandRegistrar.PERMISSION_BASE + ".autorepair";
+
+    private final AutoRepairQueue queue;
+    private final DurabilityAccessor durability = DurabilityAccessor.create();
+
+    /**
+     * Initializes the listener.
+     *
+     * @param queue the queue to add the damaged items to
+     */
+    public AutoRepairListener(@NotNull AutoRepairQueue queue) {
+        this.queue = queue;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDamage(@NotNull PlayerItemDamageEvent event) {
+        Player player = event.getPlayer();
+        if (!player.hasPermission(PERMISSION))
+            return;
+
+        // The damage is applied after the event, so the item is still equal to the one in the slot
+        ItemStack item = event.getItem();
+        int slot = SlotPlan.find(player.getInventory(), item);
+        if (slot != -1)
+            queue.add(player, slot, item.getType().getMaxDurability() - durability.getDamage(new ItemContext(item)) - event.getDamage());
+    }
+
+    @EventHandler
+    public void onQuit(@NotNull PlayerQuitEvent event) {
+        queue.remove(event.getPlayer());
+    }
+
+}
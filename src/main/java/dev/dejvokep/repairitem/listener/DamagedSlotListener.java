@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.listener;
+
+import dev.dejvokep.repairitem.repair.DamagedSlotIndex;
+import dev.dejvokep.repairitem.repair.SlotPlan;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.*;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener keeping the {@link DamagedSlotIndex} up to date. Supported on server versions 1.12 and newer.
+ */
+public class DamagedSlotListener implements Listener {
+
+    /**
+     * Path to the damaged slot index enabled option.
+     */
+    public static final String PATH_ENABLED = "damaged-slot-index.enabled";
+    /**
+     * Path to the max age (in seconds) of a damaged slot index.
+     */
+    public static final String PATH_MAX_AGE = "damaged-slot-index.max-age";
+
+    private final DamagedSlotIndex index;
+
+    /**
+     * Initializes the listener.
+     *
+     * @param index the index to keep up to date
+     */
+    public DamagedSlotListener(@NotNull DamagedSlotIndex index) {
+        this.index = index;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDamage(@NotNull PlayerItemDamageEvent event) {
+        Player player = event.getPlayer();
+        int slot = SlotPlan.find(player.getInventory(), event.getItem());
+        if (slot == -1)
+            index.invalidate(player);
+        else
+            index.markDamaged(player, slot);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHands(@NotNull PlayerSwapHandItemsEvent event) {
+        Player player = event.getPlayer();
+        index.swap(player, player.getInventory().getHeldItemSlot(), SlotPlan.OFF_HAND_SLOT);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPickup(@NotNull EntityPickupItemEvent event) {
+        if (!(event.getEntity() instanceof Player))
+            return;
+
+        // The slot the item ends up in is unknown
+        ItemStack item = event.getItem().getItemStack();
+        if (item.getType().getMaxDurability() != 0)
+            index.invalidate((Player) event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClick(@NotNull InventoryClickEvent event) {
+        invalidate(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDrag(@NotNull InventoryDragEvent event) {
+        invalidate(event.getWhoClicked());
+    }
+
+    @EventHandler
+    public void onJoin(@NotNull PlayerJoinEvent event) {
+        // Built by a full scan on the first repair
+        index.invalidate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onWorldChange(@NotNull PlayerChangedWorldEvent event) {
+        index.invalidate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onRespawn(@NotNull PlayerRespawnEvent event) {
+        index.invalidate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onQuit(@NotNull PlayerQuitEvent event) {
+        index.remove(event.getPlayer());
+    }
+
+    /**
+     * Invalidates the index of the given entity, if a player.
+     *
+     * @param entity the entity
+     */
+    private void invalidate(@NotNull HumanEntity entity) {
+        if (entity instanceof Player)
+            index.invalidate((Player) entity);
+    }
+
+    /**
+     * Returns whether the listener is supported by the server (version 1.12 or newer).
+     *
+     * @return whether the listener is supported
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName("org.bukkit.event.entity.EntityPickupItemEvent");
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+}
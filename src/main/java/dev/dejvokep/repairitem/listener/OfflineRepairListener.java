@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.listener;
+
+import dev.dejvokep.repairitem.command.CommandRegistrar;
+import dev.dejvokep.repairitem.offline.OfflineRepairService;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener aborting offline repairs of players who log in, before their data is loaded by the server.
+ * <p>
+ * Repairs are aborted as early as the asynchronous pre-login, which also waits for a data file being replaced to be
+ * fully written. Players stay marked until their login is disallowed, or until the tick after they quit, once the server
+ * has saved their data.
+ */
+public class OfflineRepairListener implements Listener {
+
+    /**
+     * Path to the offline repair enabled option.
+     */
+    public static final String PATH_ENABLED = "offline-repair.enabled";
+
+    /**
+     * Permission required to repair offline players.
+     */
+    public static final String PERMISSION = CommandRegistrar.PERMISSION_BASE + ".offline";
+
+    private final OfflineRepairService service;
+
+    /**
+     * Initializes the listener.
+     *
+     * @param service the service whose jobs to abort
+     */
+    public OfflineRepairListener(@NotNull OfflineRepairService service) {
+        this.service = service;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPreLogin(@NotNull AsyncPlayerPreLoginEvent event) {
+        service.abort(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLoginResult(@NotNull AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED)
+            service.leave(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onLogin(@NotNull PlayerLoginEvent event) {
+        service.abort(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoginResult(@NotNull PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED)
+            service.leave(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(@NotNull PlayerQuitEvent event) {
+        service.quit(event.getPlayer().getUniqueId());
+    }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.offline;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A minimal codec of gzip-compressed NBT files, as used by the server to store player data.
+ * <p>
+ * Compounds are decoded to {@link LinkedHashMap linked hash maps} (preserving the order of the entries), lists to
+ * {@link ListTag list tags} and all other tags to their boxed or array counterparts, so every tag is encoded back with
+ * the same type.
+ */
+public class Nbt {
+
+    /**
+     * Tag type IDs.
+     */
+    private static final byte END = 0, BYTE = 1, SHORT = 2, INT = 3, LONG = 4, FLOAT = 5, DOUBLE = 6, BYTE_ARRAY = 7,
+            STRING = 8, LIST = 9, COMPOUND = 10, INT_ARRAY = 11, LONG_ARRAY = 12;
+
+    /**
+     * Maximum nesting depth, as enforced by the server.
+     */
+    private static final int MAX_DEPTH = 512;
+
+    /**
+     * Size of the I/O buffers.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * A list tag, remembering the type of its elements (so empty lists are encoded back with the same type).
+     */
+    public static class ListTag extends ArrayList<Object> {
+
+        private final byte elementType;
+
+        /**
+         * Initializes an empty list of elements of the given type.
+         *
+         * @param elementType the tag type ID of the elements
+         */
+        public ListTag(byte elementType) {
+            this.elementType = elementType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ListTag && ((ListTag) o).elementType == elementType && super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * super.hashCode() + elementType;
+        }
+    }
+
+    /**
+     * Reads the root compound from the given file.
+     *
+     * @param file the file to read
+     * @return the root compound
+     * @throws IOException if failed to read the file, or it is not a valid NBT file
+     */
+    @NotNull
+    public static Map<String, Object> read(@NotNull Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (input.readByte() != COMPOUND)
+                throw new IOException("The root tag is not a compound!");
+            // Root name
+            input.readUTF();
+            return readCompound(input, 0);
+        }
+    }
+
+    /**
+     * Writes the given root compound to the given file, with an empty root name.
+     *
+     * @param file the file to write to
+     * @param root the root compound
+     * @throws IOException if failed to write the file
+     */
+    public static void write(@NotNull Path file, @NotNull Map<String, Object> root) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            output.writeByte(COMPOUND);
+            output.writeUTF("");
+            writeCompound(output, root);
+        }
+    }
+
+    /**
+     * Reads the payload of a compound.
+     *
+     * @param input the input
+     * @param depth the current depth
+     * @return the compound
+     * @throws IOException if failed to read
+     */
+    @NotNull
+    private static Map<String, Object> readCompound(@NotNull DataInput input, int depth) throws IOException {
+        Map<String, Object> compound = new LinkedHashMap<>();
+        byte type;
+        while ((type = input.readByte()) != END)
+            compound.put(input.readUTF(), readPayload(input, type, depth + 1));
+        return compound;
+    }
+
+    /**
+     * Reads the payload of a tag of the given type.
+     *
+     * @param input the input
+     * @param type  the tag type ID
+     * @param depth the current depth
+     * @return the payload
+     * @throws IOException if failed to read
+     */
+    @NotNull
+    private static Object readPayload(@NotNull DataInput input, byte type, int depth) throws IOException {
+        if (depth > MAX_DEPTH)
+            throw new IOException("The tag is nested too deep!");
+
+        switch (type) {
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return input.readShort();
+            case INT:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case FLOAT:
+                return input.readFloat();
+            case DOUBLE:
+                return input.readDouble();
+            case BYTE_ARRAY:
+                byte[] bytes = new byte[length(input)];
+                input.readFully(bytes);
+                return bytes;
+            case STRING:
+                return input.readUTF();
+            case LIST:
+                ListTag list = new ListTag(input.readByte());
+                int size = length(input);
+                for (int i = 0; i < size; i++)
+                    list.add(readPayload(input, list.elementType, depth + 1));
+                return list;
+            case COMPOUND:
+                return readCompound(input, depth);
+            case INT_ARRAY:
+                int[] ints = new int[length(input)];
+                for (int i = 0; i < ints.length; i++)
+                    ints[i] = input.readInt();
+                return ints;
+            case LONG_ARRAY:
+                long[] longs = new long[length(input)];
+                for (int i = 0; i < longs.length; i++)
+                    longs[i] = input.readLong();
+                return longs;
+            default:
+                throw new IOException("Unknown tag type " + type + "!");
+        }
+    }
+
+    /**
+     * Reads the length of an array or list.
+     *
+     * @param input the input
+     * @return the length
+     * @throws IOException if failed to read, or the length is negative
+     */
+    private static int length(@NotNull DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0)
+            throw new IOException("Negative length " + length + "!");
+        return length;
+    }
+
+    /**
+     * Writes the payload of a compound.
+     *
+     * @param output   the output
+     * @param compound the compound
+     * @throws IOException if failed to write
+     */
+    private static void writeCompound(@NotNull DataOutput output, @NotNull Map<?, ?> compound) throws IOException {
+        for (Map.Entry<?, ?> entry : compound.entrySet()) {
+            output.writeByte(typeOf(entry.getValue()));
+            output.writeUTF(entry.getKey().toString());
+            writePayload(output, entry.getValue());
+        }
+        output.writeByte(END);
+    }
+
+    /**
+     * Writes the payload of the given tag.
+     *
+     * @param output the output
+     * @param tag    the tag
+     * @throws IOException if failed to write
+     */
+    private static void writePayload(@NotNull DataOutput output, @NotNull Object tag) throws IOException {
+        switch (typeOf(tag)) {
+            case BYTE:
+                output.writeByte((Byte) tag);
+                return;
+            case SHORT:
+                output.writeShort((Short) tag);
+                return;
+            case INT:
+                output.writeInt((Integer) tag);
+                return;
+            case LONG:
+                output.writeLong((Long) tag);
+                return;
+            case FLOAT:
+                output.writeFloat((Float) tag);
+                return;
+            case DOUBLE:
+                output.writeDouble((Double) tag);
+                return;
+            case BYTE_ARRAY:
+                output.writeInt(((byte[]) tag).length);
+                output.write((byte[]) tag);
+                return;
+            case STRING:
+                output.writeUTF((String) tag);
+                return;
+            case LIST:
+                ListTag list = (ListTag) tag;
+                output.writeByte(list.elementType);
+                output.writeInt(list.size());
+                for (Object element : list)
+                    writePayload(output, element);
+                return;
+            case COMPOUND:
+                writeCompound(output, (Map<?, ?>) tag);
+                return;
+            case INT_ARRAY:
+                output.writeInt(((int[]) tag).length);
+                for (int value : (int[]) tag)
+                    output.writeInt(value);
+                return;
+            case LONG_ARRAY:
+                output.writeInt(((long[]) tag).length);
+                for (long value : (long[]) tag)
+                    output.writeLong(value);
+        }
+    }
+
+    /**
+     * Returns the tag type ID of the given decoded tag.
+     *
+     * @param tag the tag
+     * @return the tag type ID
+     * @throws IllegalArgumentException if the object does not represent a tag
+     */
+    private static byte typeOf(@NotNull Object tag) {
+        if (tag instanceof Byte)
+            return BYTE;
+        if (tag instanceof Short)
+            return SHORT;
+        if (tag instanceof Integer)
+            return INT;
+        if (tag instanceof Long)
+            return LONG;
+        if (tag instanceof Float)
+            return FLOAT;
+        if (tag instanceof Double)
+            return DOUBLE;
+        if (tag instanceof byte[])
+            return BYTE_ARRAY;
+        if (tag instanceof String)
+            return STRING;
+        if (tag instanceof ListTag)
+            return LIST;
+        if (tag instanceof Map)
+            return COMPOUND;
+        if (tag instanceof int[])
+            return INT_ARRAY;
+        if (tag instanceof long[])
+            return LONG_ARRAY;
+        throw new IllegalArgumentException("Not a tag: " + tag.getClass());
+    }
+
+    /**
+     * Returns the stringified (SNBT) representation of the given tag, as accepted by the server's commands.
+     *
+     * @param tag the tag
+     * @return the SNBT representation
+     */
+    @NotNull
+    public static String toSnbt(@NotNull Object tag) {
+        StringBuilder builder = new StringBuilder();
+        appendSnbt(builder, tag);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the stringified (SNBT) representation of the given tag to the given builder.
+     *
+     * @param builder the builder
+     * @param tag     the tag
+     */
+    private static void appendSnbt(@NotNull StringBuilder builder, @NotNull Object tag) {
+        switch (typeOf(tag)) {
+            case BYTE:
+                builder.append(tag).append('b');
+                return;
+            case SHORT:
+                builder.append(tag).append('s');
+                return;
+            case INT:
+                builder.append(tag);
+                return;
+            case LONG:
+                builder.append(tag).append('L');
+                return;
+            case FLOAT:
+                builder.append(tag).append('f');
+                return;
+            case DOUBLE:
+                builder.append(tag).append('d');
+                return;
+            case BYTE_ARRAY:
+                builder.append("[B;");
+                byte[] bytes = (byte[]) tag;
+                for (int i = 0; i < bytes.length; i++)
+                    builder.append(i == 0 ? "" : ",").append(bytes[i]).append('b');
+                builder.append(']');
+                return;
+            case STRING:
+                appendString(builder, (String) tag);
+                return;
+            case LIST:
+                builder.append('[');
+                List<?> list = (List<?>) tag;
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0)
+                        builder.append(',');
+                    appendSnbt(builder, list.get(i));
+                }
+                builder.append(']');
+                return;
+            case COMPOUND:
+                builder.append('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) tag).entrySet()) {
+                    if (!first)
+                        builder.append(',');
+                    appendKey(builder, entry.getKey().toString());
+                    builder.append(':');
+                    appendSnbt(builder, entry.getValue());
+                    first = false;
+                }
+                builder.append('}');
+                return;
+            case INT_ARRAY:
+                builder.append("[I;");
+                int[] ints = (int[]) tag;
+                for (int i = 0; i < ints.length; i++)
+                    builder.append(i == 0 ? "" : ",").append(ints[i]);
+                builder.append(']');
+                return;
+            case LONG_ARRAY:
+                builder.append("[L;");
+                long[] longs = (long[]) tag;
+                for (int i = 0; i < longs.length; i++)
+                    builder.append(i == 0 ? "" : ",").append(longs[i]).append('L');
+                builder.append(']');
+        }
+    }
+
+    /**
+     * Appends the given compound key, quoted only if it contains characters not allowed in unquoted keys.
+     *
+     * @param builder the builder
+     * @param key     the key
+     */
+    private static void appendKey(@NotNull StringBuilder builder, @NotNull String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '-' || c == '.' || c == '+')) {
+                appendString(builder, key);
+                return;
+            }
+        }
+        builder.append(key);
+    }
+
+    /**
+     * Appends the given string, quoted and escaped.
+     *
+     * @param builder the builder
+     * @param string  the string
+     */
+    private static void appendString(@NotNull StringBuilder builder, @NotNull String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\')
+                builder.append('\\');
+            builder.append(c);
+        }
+        builder.append('"');
+    }
+
+}
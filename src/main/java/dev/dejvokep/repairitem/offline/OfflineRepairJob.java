@@ -0,0 +1,431 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.offline;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.repair.BlockedItemIndex;
+import dev.dejvokep.repairitem.repair.ItemContext;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import dev.dejvokep.repairitem.repair.SlotPlan;
+import dev.dejvokep.repairitem.utils.Placeholder;
+import dev.dejvokep.repairitem.utils.VersionConstants;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * A repair of an offline player, performed directly on their <code>playerdata/&lt;uuid&gt;.dat</code> file on a
+ * worker thread.
+ * <p>
+ * The damage is reset only on the inventory, armor and off-hand items covered by the function which are not blocked.
+ * The file is written to a temporary file first and then moved over the original, so it is never left partially
+ * written. The move is guarded against {@link #abort() aborting} (when the player logs in), so the server never loads
+ * the file while being replaced. The player is resolved by their name on the worker thread, as it might require a
+ * remote lookup; players logging in meanwhile are tracked by the service regardless.
+ * <p>
+ * Three item formats are supported: the legacy (before 1.13) with the damage stored as <code>Damage</code> at the item
+ * root, the tag format (1.13 - 1.20.4) with <code>tag.Damage</code> and the component format (1.20.5 and newer) with
+ * <code>components."minecraft:damage"</code>. To compare items against blocked items comparing meta, the item's tag or
+ * components are applied to an item stack by the server; if that fails, the item is recorded as failed and left as is.
+ * As the server API is not thread-safe, blocked items are checked on the main thread, for all damaged items at once.
+ */
+public class OfflineRepairJob implements Runnable {
+
+    /**
+     * Slot IDs of the armor (from boots to helmet) and the off-hand in player data.
+     */
+    private static final int ARMOR_SLOT = 100, OFF_HAND_SLOT = -106;
+
+    /**
+     * Keys of the equipment compound (1.21.5 and newer), by their raw slots.
+     */
+    private static final String[] EQUIPMENT = {"feet", "legs", "chest", "head", "offhand"};
+
+    private final RepairItem plugin;
+    private final OfflineRepairService service;
+    private final CommandSender sender;
+    private final CommandFunction function;
+    private final String name;
+    private final Path folder;
+    private final Object lock = new Object();
+    private boolean aborted = false;
+
+    /**
+     * Initializes the job.
+     *
+     * @param plugin   the plugin instance
+     * @param service  the service running the job
+     * @param sender   the command sender
+     * @param function the repair function
+     * @param name     name of the offline player
+     * @param folder   the player data folder
+     */
+    OfflineRepairJob(@NotNull RepairItem plugin, @NotNull OfflineRepairService service, @NotNull CommandSender sender, @NotNull CommandFunction function, @NotNull String name, @NotNull Path folder) {
+        this.plugin = plugin;
+        this.service = service;
+        this.sender = sender;
+        this.function = function;
+        this.name = name;
+        this.folder = folder;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void run() {
+        // Might look up the ID remotely
+        OfflinePlayer player = Bukkit.getOfflinePlayer(name);
+        UUID uuid = player.getUniqueId();
+        Path file = folder.resolve(uuid + ".dat");
+        if (!player.hasPlayedBefore() || !Files.isRegularFile(file)) {
+            sendMessage("repair.sender.error.player-offline");
+            return;
+        }
+
+        // Another job is running
+        if (!service.register(uuid, this)) {
+            sendMessage("repair.sender.error.offline-busy");
+            return;
+        }
+
+        try {
+            // Logged in before registered
+            if (isAborted()) {
+                sendMessage("repair.sender.error.offline-aborted");
+                return;
+            }
+            sendMessage("repair.sender.offline-started");
+
+            // Repair
+            Map<String, Object> root = Nbt.read(file);
+            RepairAccumulator accumulator = new RepairAccumulator();
+            if (repair(root, accumulator) && !commit(file, root)) {
+                sendMessage("repair.sender.error.offline-aborted");
+                return;
+            }
+
+            plugin.getStats().record(accumulator);
+            plugin.getMessenger().sendRepairToSender(sender, function, accumulator, player.getName() == null ? name : player.getName());
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to repair items of offline player " + name + "!", ex);
+            sendMessage("repair.sender.error.offline-failed");
+        } finally {
+            service.unregister(uuid, this);
+        }
+    }
+
+    /**
+     * Repairs the items in the given player data, recording the results into the given accumulator.
+     *
+     * @param root        the player data
+     * @param accumulator the accumulator to record the results into
+     * @return whether any item was repaired (the data was modified)
+     * @throws Exception if failed to check the blocked items on the main thread
+     */
+    private boolean repair(@NotNull Map<String, Object> root, @NotNull RepairAccumulator accumulator) throws Exception {
+        SlotPlan plan = plugin.getRepairer().getPlan(function);
+        if (!plan.isSupported()) {
+            accumulator.recordUnsupported();
+            return false;
+        }
+        long slots = plan.getSlots(number(root.get("SelectedItemSlot")));
+
+        // Collect damaged items
+        List<Map<String, Object>> damaged = new ArrayList<>();
+        List<Material> types = new ArrayList<>();
+        Map<Integer, Map<String, Object>> items = plan.isEnderChest() ? getEnderItems(root) : getItems(root);
+        for (Map.Entry<Integer, Map<String, Object>> entry : items.entrySet()) {
+            if ((slots & 1L << entry.getKey()) == 0)
+                continue;
+            // Cannot be repaired or not damaged
+            Material type = getType(entry.getValue());
+            if (type == null || type.getMaxDurability() <= 0 || getDamage(entry.getValue()) <= 0) {
+                accumulator.recordIntact();
+                continue;
+            }
+            damaged.add(entry.getValue());
+            types.add(type);
+        }
+        if (damaged.isEmpty())
+            return false;
+
+        // Check blocked items
+        boolean[] repairable = Bukkit.getScheduler().callSyncMethod(plugin, () -> getRepairable(damaged, types, accumulator)).get();
+        boolean repaired = false;
+        for (int i = 0; i < repairable.length; i++) {
+            if (!repairable[i])
+                continue;
+            resetDamage(damaged.get(i));
+            accumulator.recordRepaired();
+            repaired = true;
+        }
+        return repaired;
+    }
+
+    /**
+     * Checks which of the given damaged items are not blocked, recording the blocked and failed items into the given
+     * accumulator. Must be called from the main thread.
+     *
+     * @param items       the damaged items
+     * @param types       types of the items
+     * @param accumulator the accumulator to record the results into
+     * @return whether the item at the corresponding index can be repaired
+     */
+    @NotNull
+    private boolean[] getRepairable(@NotNull List<Map<String, Object>> items, @NotNull List<Material> types, @NotNull RepairAccumulator accumulator) {
+        BlockedItemIndex blockedItems = plugin.getSettings().getBlockedItems();
+        boolean comparesMeta = blockedItems.getProperties() != 0 || blockedItems.hasTagRules();
+        boolean[] repairable = new boolean[items.size()];
+        for (int i = 0; i < repairable.length; i++) {
+            ItemStack itemStack = comparesMeta ? toItemStack(types.get(i), items.get(i)) : new ItemStack(types.get(i));
+            if (itemStack == null) {
+                accumulator.recordFailed();
+                continue;
+            }
+            ItemContext context = new ItemContext(itemStack);
+            boolean blocked = plugin.getRepairer().isBlocked(blockedItems, context);
+            accumulator.recordEvaluations(context.getEvaluations());
+            if (blocked)
+                accumulator.recordBlocked();
+            else
+                repairable[i] = true;
+        }
+        return repairable;
+    }
+
+    /**
+     * Writes the given player data into a temporary file and moves it over the given file, unless aborted.
+     *
+     * @param file the player data file
+     * @param root the player data
+     * @return whether committed, <code>false</code> if aborted
+     * @throws IOException if failed to write or move the file
+     */
+    private boolean commit(@NotNull Path file, @NotNull Map<String, Object> root) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".repairitem");
+        try {
+            Nbt.write(temporary, root);
+            synchronized (lock) {
+                if (aborted)
+                    return false;
+                try {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return true;
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Aborts the job. Once this method returns, the job is guaranteed not to modify the player data file.
+     */
+    void abort() {
+        synchronized (lock) {
+            aborted = true;
+        }
+    }
+
+    /**
+     * Returns whether the job was aborted.
+     *
+     * @return whether the job was aborted
+     */
+    private boolean isAborted() {
+        synchronized (lock) {
+            return aborted;
+        }
+    }
+
+    /**
+     * Returns the items of the given player data by their raw slots, as defined by {@link SlotPlan}.
+     *
+     * @param root the player data
+     * @return the items by their raw slots
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private Map<Integer, Map<String, Object>> getItems(@NotNull Map<String, Object> root) {
+        Map<Integer, Map<String, Object>> items = new HashMap<>();
+
+        // Inventory
+        Object inventory = root.get("Inventory");
+        if (inventory instanceof List) {
+            for (Object item : (List<?>) inventory) {
+                if (!(item instanceof Map))
+                    continue;
+                int slot = number(((Map<?, ?>) item).get("Slot"));
+                if (slot >= 0 && slot < SlotPlan.ARMOR_OFFSET)
+                    items.put(slot, (Map<String, Object>) item);
+                else if (slot >= ARMOR_SLOT && slot < ARMOR_SLOT + 4)
+                    items.put(SlotPlan.ARMOR_OFFSET + slot - ARMOR_SLOT, (Map<String, Object>) item);
+                else if (slot == OFF_HAND_SLOT)
+                    items.put(SlotPlan.OFF_HAND_SLOT, (Map<String, Object>) item);
+            }
+        }
+
+        // Equipment
+        Object equipment = root.get("equipment");
+        if (equipment instanceof Map) {
+            for (int i = 0; i < EQUIPMENT.length; i++) {
+                Object item = ((Map<?, ?>) equipment).get(EQUIPMENT[i]);
+                if (item instanceof Map)
+                    items.put(SlotPlan.ARMOR_OFFSET + i, (Map<String, Object>) item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns the ender chest items in the given player data, by their slots.
+     *
+     * @param root the player data
+     * @return the items, by their slots
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private Map<Integer, Map<String, Object>> getEnderItems(@NotNull Map<String, Object> root) {
+        Map<Integer, Map<String, Object>> items = new HashMap<>();
+        Object enderChest = root.get("EnderItems");
+        if (enderChest instanceof List) {
+            for (Object item : (List<?>) enderChest) {
+                if (!(item instanceof Map))
+                    continue;
+                int slot = number(((Map<?, ?>) item).get("Slot"));
+                if (slot >= 0 && slot < SlotPlan.ENDER_CHEST_SIZE)
+                    items.put(slot, (Map<String, Object>) item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns the type of the given item.
+     *
+     * @param item the item
+     * @return the type, or <code>null</code> if unknown
+     */
+    @Nullable
+    private Material getType(@NotNull Map<String, Object> item) {
+        String id = String.valueOf(item.get("id"));
+        return Material.matchMaterial(id.substring(id.indexOf(':') + 1));
+    }
+
+    /**
+     * Returns the damage of the given item.
+     *
+     * @param item the item
+     * @return the damage
+     */
+    private int getDamage(@NotNull Map<String, Object> item) {
+        Object components = item.get("components");
+        if (components instanceof Map)
+            return number(((Map<?, ?>) components).get("minecraft:damage"));
+        if (VersionConstants.LEGACY_DURABILITY)
+            return number(item.get("Damage"));
+        Object tag = item.get("tag");
+        return tag instanceof Map ? number(((Map<?, ?>) tag).get("Damage")) : 0;
+    }
+
+    /**
+     * Resets the damage of the given item.
+     *
+     * @param item the item
+     */
+    @SuppressWarnings("unchecked")
+    private void resetDamage(@NotNull Map<String, Object> item) {
+        Object components = item.get("components");
+        if (components instanceof Map)
+            ((Map<String, Object>) components).remove("minecraft:damage");
+        else if (VersionConstants.LEGACY_DURABILITY)
+            item.put("Damage", (short) 0);
+        else
+            ((Map<String, Object>) item.get("tag")).put("Damage", 0);
+    }
+
+    /**
+     * Creates an item stack of the given type with the tag or components of the given item applied. Must be called from
+     * the main thread.
+     *
+     * @param type the type
+     * @param item the item
+     * @return the item stack, or <code>null</code> if the tag or components could not be applied
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    private ItemStack toItemStack(@NotNull Material type, @NotNull Map<String, Object> item) {
+        ItemStack itemStack = new ItemStack(type);
+        try {
+            // Components
+            Object components = item.get("components");
+            if (components instanceof Map) {
+                StringBuilder arguments = new StringBuilder("[");
+                for (Map.Entry<?, ?> component : ((Map<?, ?>) components).entrySet()) {
+                    if (arguments.length() > 1)
+                        arguments.append(',');
+                    arguments.append(component.getKey());
+                    // Not a removed component
+                    if (!component.getKey().toString().startsWith("!"))
+                        arguments.append('=').append(Nbt.toSnbt(component.getValue()));
+                }
+                return Bukkit.getUnsafe().modifyItemStack(itemStack, arguments.append(']').toString());
+            }
+
+            // Tag
+            Object tag = item.get("tag");
+            return tag instanceof Map ? Bukkit.getUnsafe().modifyItemStack(itemStack, Nbt.toSnbt(tag)) : itemStack;
+        } catch (RuntimeException ex) {
+            plugin.getLogger().log(Level.FINE, "Failed to decode an item of offline player " + name + ".", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the given tag as an integer.
+     *
+     * @param tag the tag
+     * @return the integer, or <code>0</code> if not a number
+     */
+    private static int number(@Nullable Object tag) {
+        return tag instanceof Number ? ((Number) tag).intValue() : 0;
+    }
+
+    /**
+     * Sends the given message to the sender.
+     *
+     * @param messageId ID of the message
+     */
+    private void sendMessage(@NotNull String messageId) {
+        plugin.getMessenger().send(sender, messageId, (placeholder, builder) -> builder.append(placeholder == Placeholder.TARGET ? name : placeholder.getToken()));
+    }
+
+}
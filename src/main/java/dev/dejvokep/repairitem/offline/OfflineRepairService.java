@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.offline;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service running {@link OfflineRepairJob offline repairs} - repairs of players who are offline, performed directly on
+ * their player data files.
+ * <p>
+ * Jobs run one at a time on a dedicated worker thread. At most one job per player may be running; if the player logs
+ * in meanwhile, the job is {@link #abort(UUID) aborted} so the file is not modified while the server loads it.
+ * <p>
+ * Players logging in are tracked until they {@link #leave(UUID) leave}, even if no job is running for them, so a job
+ * registered while the player is logging in or online is aborted right away. Players who {@link #quit(UUID) quit}
+ * stay marked for one more tick, until the server has saved their data.
+ */
+public class OfflineRepairService {
+
+    private final RepairItem plugin;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RepairItem Offline Repair");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<UUID, OfflineRepairJob> running = new HashMap<>();
+    private final Map<UUID, Long> present = new HashMap<>();
+    private long logins = 0;
+
+    /**
+     * Initializes the service.
+     *
+     * @param plugin the plugin instance
+     */
+    public OfflineRepairService(@NotNull RepairItem plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Submits a repair of the given offline player. The sender is sent the result once finished. Must be called from
+     * the main thread.
+     *
+     * @param sender   the command sender
+     * @param function the repair function
+     * @param name     name of the offline player
+     */
+    public void submit(@NotNull CommandSender sender, @NotNull CommandFunction function, @NotNull String name) {
+        File folder = new File(Bukkit.getWorlds().get(0).getWorldFolder(), "playerdata");
+        worker.execute(new OfflineRepairJob(plugin, this, sender, function, name, folder.toPath()));
+    }
+
+    /**
+     * Registers the given job as running for the given player. If the player is logging in or online, the job is
+     * aborted right away.
+     *
+     * @param uuid the player's ID
+     * @param job  the job
+     * @return whether registered, <code>false</code> if there is another job running for the player
+     */
+    synchronized boolean register(@NotNull UUID uuid, @NotNull OfflineRepairJob job) {
+        if (running.putIfAbsent(uuid, job) != null)
+            return false;
+        if (present.containsKey(uuid))
+            job.abort();
+        return true;
+    }
+
+    /**
+     * Unregisters the given job.
+     *
+     * @param uuid the player's ID
+     * @param job  the job
+     */
+    synchronized void unregister(@NotNull UUID uuid, @NotNull OfflineRepairJob job) {
+        running.remove(uuid, job);
+    }
+
+    /**
+     * Marks the given player as logging in and aborts the job running for them, if any. Once this method returns, no job
+     * is going to modify the player's data file until they {@link #leave(UUID) leave}. If the job is just replacing the
+     * file, waits for it to finish.
+     *
+     * @param uuid the player's ID
+     */
+    public synchronized void abort(@NotNull UUID uuid) {
+        present.put(uuid, ++logins);
+        OfflineRepairJob job = running.get(uuid);
+        if (job != null)
+            job.abort();
+    }
+
+    /**
+     * Unmarks the given player as logging in, once their login is disallowed.
+     *
+     * @param uuid the player's ID
+     */
+    public synchronized void leave(@NotNull UUID uuid) {
+        present.remove(uuid);
+    }
+
+    /**
+     * Unmarks the given player, who has just quit, on the next tick. The server saves the player's data only after the
+     * quit event, so jobs must not register until then. If the player logs in again meanwhile, they stay marked. Must
+     * be called from the main thread.
+     *
+     * @param uuid the player's ID
+     */
+    public synchronized void quit(@NotNull UUID uuid) {
+        Long login = present.get(uuid);
+        if (login == null)
+            return;
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            synchronized (this) {
+                present.remove(uuid, login);
+            }
+        });
+    }
+
+    /**
+     * Stops the worker, discarding the jobs which have not started yet.
+     */
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.config.Settings;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Queue of damaged items to repair automatically, drained every tick within a time budget. Must only be used from the
+ * main thread.
+ * <p>
+ * Items are queued by player and raw slot. Repeated damage is merged into a single repair, which runs once the
+ * {@link Settings#getAutoRepairDebounce() debounce period} since the first damage elapses - continuous damage does not
+ * postpone it. Items about to break (with the remaining durability at most
+ * {@link Settings#getAutoRepairUrgentDurability() urgent durability}) are repaired on the next tick.
+ * Each item is repaired as by {@link Repairer#repair(org.bukkit.inventory.ItemStack, RepairAccumulator)}, so blocked items are respected.
+ */
+public class AutoRepairQueue extends BukkitRunnable {
+
+    private final RepairItem plugin;
+    private final Map<UUID, Entry> entries = new LinkedHashMap<>();
+    private final RepairAccumulator result = new RepairAccumulator();
+    private long tick = 0;
+
+    /**
+     * Initializes the queue. The queue must be scheduled to run every tick.
+     *
+     * @param plugin the plugin instance
+     */
+    public AutoRepairQueue(@NotNull RepairItem plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Queues the item in the given raw slot of the player's inventory, as defined by {@link SlotPlan}.
+     *
+     * @param player    the player
+     * @param slot      the raw slot
+     * @param remaining durability the item has remaining after the damage
+     */
+    public void add(@NotNull Player player, int slot, int remaining) {
+        Settings settings = plugin.getSettings();
+        Entry entry = entries.computeIfAbsent(player.getUniqueId(), key -> new Entry(player, tick + settings.getAutoRepairDebounce()));
+        entry.slots |= 1L << slot;
+        // About to break
+        if (remaining <= settings.getAutoRepairUrgentDurability())
+            entry.due = tick;
+    }
+
+    /**
+     * Removes all items queued for the given player.
+     *
+     * @param player the player
+     */
+    public void remove(@NotNull Player player) {
+        entries.remove(player.getUniqueId());
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        if (entries.isEmpty())
+            return;
+
+        long deadline = System.nanoTime() + plugin.getSettings().getAutoRepairBudget();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            // Still being damaged
+            if (entry.due > tick)
+                continue;
+
+            iterator.remove();
+            if (!entry.player.isOnline())
+                continue;
+
+            // Repair
+            result.reset();
+            plugin.getRepairer().repair(entry.player, entry.slots, result);
+            plugin.getStats().record(result);
+
+            // Out of budget
+            if (System.nanoTime() >= deadline)
+                return;
+        }
+    }
+
+    /**
+     * Returns the amount of players with queued items.
+     *
+     * @return the amount of players with queued items
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Items queued for one player.
+     */
+    private static class Entry {
+
+        private final Player player;
+        private long slots = 0, due;
+
+        /**
+         * Initializes an entry with no queued items.
+         *
+         * @param player the player
+         * @param due    the tick at which to repair the items
+         */
+        private Entry(@NotNull Player player, long due) {
+            this.player = player;
+            this.due = due;
+        }
+
+    }
+
+}
@@ -15,24 +15,122 @@
  */
 package dev.dejvokep.repairitem.repair;
 
-import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.utils.MemoryEstimator;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemFlag;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
 import java.util.*;
-import java.util.logging.Level;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Class representing a blocked item.
+ * <p>
+ * As catalogs may define tens of thousands of blocked items, they are stored compactly: the set properties in one
+ * bitfield, enchantments in sorted arrays and strings shared across all blocked items of one load through a
+ * {@link RulePool}. Unset properties hold no objects at all.
  */
 public class BlockedItem {
 
+    /**
+     * Checks of the meta properties, declared in the order they are run: from the cheapest and most selective.
+     * <p>
+     * The unbreakable state is a field read. Names are rejected by their hashes and are unique to few items. Lore is
+     * rejected by its size and hash. Flags and enchantments require copying a collection and are rarely selective.
+     */
+    private enum Check {
+        /**
+         * Unbreakable state check.
+         */
+        UNBREAKABLE(PROPERTY_UNBREAKABLE),
+        /**
+         * Name check.
+         */
+        NAME(PROPERTY_NAME),
+        /**
+         * Lore check.
+         */
+        LORE(PROPERTY_LORE),
+        /**
+         * Flags check.
+         */
+        FLAGS(PROPERTY_FLAGS),
+        /**
+         * Enchantments check.
+         */
+        ENCHANTMENTS(PROPERTY_ENCHANTMENTS);
+
+        private final int property;
+
+        /**
+         * Initializes the check.
+         *
+         * @param property the property bit compared by the check
+         */
+        Check(int property) {
+            this.property = property;
+        }
+    }
+
+    /**
+     * Property bit representing the name, as returned by {@link #getProperties()}.
+     */
+    public static final int PROPERTY_NAME = 1;
+    /**
+     * Property bit representing the lore.
+     */
+    public static final int PROPERTY_LORE = 1 << 1;
+    /**
+     * Property bit representing the enchantments.
+     */
+    public static final int PROPERTY_ENCHANTMENTS = 1 << 2;
+    /**
+     * Property bit representing the flags.
+     */
+    public static final int PROPERTY_FLAGS = 1 << 3;
+    /**
+     * Property bit representing the unbreakable state.
+     */
+    public static final int PROPERTY_UNBREAKABLE = 1 << 4;
+
+    /**
+     * Mask of all property bits.
+     */
+    private static final int PROPERTIES = (1 << 5) - 1;
+    /**
+     * Bit representing the required unbreakable state.
+     */
+    private static final int UNBREAKABLE = 1 << 5;
+    /**
+     * Bit representing whether an item without meta matches.
+     */
+    private static final int MATCHES_EMPTY_META = 1 << 6;
+
+    /**
+     * Compiled checks of each combination of the property bits, shared by all blocked items.
+     */
+    private static final Check[][] CHECKS = new Check[PROPERTIES + 1][];
+
+    /**
+     * Level matching an enchantment at any level.
+     */
+    private static final int ANY_LEVEL = -1;
+
+    static {
+        // Compile
+        for (int properties = 0; properties <= PROPERTIES; properties++) {
+            List<Check> checks = new ArrayList<>();
+            for (Check check : Check.values())
+                if ((properties & check.property) != 0)
+                    checks.add(check);
+            CHECKS[properties] = checks.toArray(new Check[0]);
+        }
+    }
+
     /**
      * Path to the item's type.
      */
@@ -64,68 +162,132 @@ public class BlockedItem {
     public static final String PATH_UNBREAKABLE = "unbreakable";
 
     // Properties
-    private Material type;
-    private String name;
-    private final List<String> lore = new ArrayList<>();
-    private final Map<Enchantment, Integer> enchantments = new HashMap<>();
-    private final Set<ItemFlag> flags = new HashSet<>();
-    private boolean unbreakable;
+    private final int bits;
+    private final Material type;
+    private final String name;
+    private final String[] lore;
+    private final int loreHash;
+    private final Enchantment[] enchantments;
+    private final int[] levels;
+    private final Set<ItemFlag> flags;
 
-    // Property flags
-    private boolean typeSet = false, nameSet = false, loreSet = false, enchantmentsSet = false, flagsSet = false,
-            unbreakableSet = false, metaDependent = false;
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Creates a blocked item using the properties stored in the given map, as documented at
+     * {@link #BlockedItem(Map, RulePool)}, with strings not shared with other blocked items.
+     *
+     * @param section a section map containing the properties
+     * @throws IllegalArgumentException if any of the properties is invalid
+     */
+    public BlockedItem(@NotNull Map<?, ?> section) {
+        this(section, new RulePool());
+    }
 
     /**
      * Creates a blocked item using the properties stored in the given map. The property key definitions must adhere to
      * the format defined by the class constants.
      *
-     * @param plugin  the plugin instance, used only for logging
-     * @param section a section map representing containing the properties
+     * @param section a section map containing the properties
+     * @param pool    the pool to share the strings through
+     * @throws IllegalArgumentException if any of the properties is invalid
      */
-    public BlockedItem(@NotNull RepairItem plugin, @NotNull Map<?, ?> section) {
+    public BlockedItem(@NotNull Map<?, ?> section, @NotNull RulePool pool) {
+        // Property being loaded
+        String property = PATH_TYPE;
+        int bits = 0;
         try {
             // Type
-            if (section.containsKey(PATH_TYPE)) {
-                type = Material.valueOf(section.get(PATH_TYPE).toString());
-                typeSet = true;
-            }
+            this.type = section.containsKey(PATH_TYPE) ? Material.valueOf(section.get(PATH_TYPE).toString()) : null;
 
             // Name
+            property = PATH_NAME;
             if (section.containsKey(PATH_NAME)) {
-                name = ChatColor.translateAlternateColorCodes('&', section.get(PATH_NAME).toString());
-                metaDependent = nameSet = true;
+                this.name = pool.string(ChatColor.translateAlternateColorCodes('&', section.get(PATH_NAME).toString()));
+                bits |= PROPERTY_NAME;
+            } else {
+                this.name = null;
             }
 
             // Lore
+            property = PATH_LORE;
             if (section.containsKey(PATH_LORE)) {
-                ((Collection<?>) section.get(PATH_LORE)).forEach(line -> this.lore.add(line.toString()));
-                metaDependent = loreSet = true;
+                List<String> lore = new ArrayList<>();
+                ((Collection<?>) section.get(PATH_LORE)).forEach(line -> lore.add(line.toString()));
+                this.lore = pool.lore(lore);
+                bits |= PROPERTY_LORE;
+            } else {
+                this.lore = null;
             }
+            this.loreHash = lore == null ? 0 : Arrays.hashCode(lore);
 
             // Enchantments
+            property = PATH_ENCHANTMENTS;
             if (section.containsKey(PATH_ENCHANTMENTS)) {
-                Collection<?> enchantments = (Collection<?>) section.get(PATH_ENCHANTMENTS);
-                for (Object enchantment : enchantments) {
+                Map<Enchantment, Integer> enchantments = new HashMap<>();
+                for (Object enchantment : (Collection<?>) section.get(PATH_ENCHANTMENTS)) {
                     String[] data = enchantment.toString().split(":");
-                    this.enchantments.put(getEnchantment(data[0]), data[1].equals("?") ? null : Integer.valueOf(data[1]));
+                    enchantments.put(getEnchantment(data[0]), data[1].equals("?") ? ANY_LEVEL : Integer.parseInt(data[1]));
                 }
-                metaDependent = enchantmentsSet = true;
+
+                // Sort by name
+                this.enchantments = enchantments.keySet().toArray(new Enchantment[0]);
+                Arrays.sort(this.enchantments, Comparator.comparing(Enchantment::getName));
+                this.levels = new int[this.enchantments.length];
+                for (int i = 0; i < levels.length; i++)
+                    levels[i] = enchantments.get(this.enchantments[i]);
+                bits |= PROPERTY_ENCHANTMENTS;
+            } else {
+                this.enchantments = null;
+                this.levels = null;
             }
 
             // Flags
+            property = PATH_FLAGS;
             if (section.containsKey(PATH_FLAGS)) {
-                ((Collection<?>) section.get(PATH_FLAGS)).forEach(flag -> this.flags.add(ItemFlag.valueOf(flag.toString())));
-                metaDependent = flagsSet = true;
+                Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+                ((Collection<?>) section.get(PATH_FLAGS)).forEach(flag -> flags.add(ItemFlag.valueOf(flag.toString())));
+                this.flags = flags;
+                bits |= PROPERTY_FLAGS;
+            } else {
+                this.flags = null;
             }
 
             // Unbreakable
+            property = PATH_UNBREAKABLE;
             if (section.containsKey(PATH_UNBREAKABLE)) {
-                unbreakable = (boolean) section.get(PATH_UNBREAKABLE);
-                metaDependent = unbreakableSet = true;
+                bits |= PROPERTY_UNBREAKABLE;
+                if ((boolean) section.get(PATH_UNBREAKABLE))
+                    bits |= UNBREAKABLE;
             }
         } catch (Exception ex) {
-            plugin.getLogger().log(Level.SEVERE, "Some of the blocked items could not be loaded; please reload the plugin and check the configuration. If the problem persists, please report it.", ex);
+            throw new IllegalArgumentException("Invalid " + property + ": " + (ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName()), ex);
         }
+
+        // Matches an empty meta if only comparing properties an empty meta has
+        if ((bits & (PROPERTY_NAME | PROPERTY_LORE | PROPERTY_ENCHANTMENTS)) == 0 && (flags == null || flags.isEmpty()) && (bits & UNBREAKABLE) == 0)
+            bits |= MATCHES_EMPTY_META;
+        this.bits = bits;
+    }
+
+    /**
+     * Returns the type this blocked item is restricted to, or <code>null</code> if it applies to items of any type.
+     *
+     * @return the type this blocked item is restricted to, or <code>null</code> if any
+     */
+    @Nullable
+    public Material getType() {
+        return type;
+    }
+
+    /**
+     * Returns the meta properties this blocked item compares, as a bitfield of the <code>PROPERTY_*</code> constants.
+     *
+     * @return the compared meta properties
+     */
+    public int getProperties() {
+        return bits & PROPERTIES;
     }
 
     /**
@@ -144,55 +306,132 @@ public class BlockedItem {
     /**
      * Compares the given item and returns whether it should (is) be blocked (it's properties are equal to the blocked
      * item's) <code>true</code>, otherwise <code>false</code>.
+     * <p>
+     * The item's meta properties are obtained from the given context, so they are decoded at most once for all
+     * comparisons. The properties are compared in order of the compiled {@link Check checks}; names and lore are
+     * compared by their hashes first, so most mismatches are rejected without comparing strings.
      *
-     * @param itemStack the item to compare
+     * @param context context of the item to compare
      * @return whether the given item should (is) blocked
      */
-    public boolean compare(@NotNull ItemStack itemStack) {
+    public boolean compare(@NotNull ItemContext context) {
         // Type
-        if (typeSet && type != itemStack.getType())
+        if (type != null && type != context.getItem().getType())
             return false;
+        // Not comparing item metas
+        if ((bits & PROPERTIES) == 0)
+            return true;
 
-        // Comparing item metas
-        if (metaDependent) {
-            // Meta
-            ItemMeta itemMeta = itemStack.getItemMeta();
-            if (itemMeta == null)
-                return false;
+        // No meta, compare against an empty one without decoding it
+        if (!context.hasMeta())
+            return (bits & MATCHES_EMPTY_META) != 0;
+        // Cannot have a meta
+        if (context.getMeta() == null)
+            return false;
 
-            // Name
-            if (nameSet && (!itemMeta.hasDisplayName() || !name.equals(itemMeta.getDisplayName())))
-                return false;
-            // Lore
-            if (loreSet && (!itemMeta.hasLore() || !lore.equals(itemMeta.getLore())))
-                return false;
-            // Enchantments
-            if (enchantmentsSet && (!itemMeta.hasEnchants() || !matchesEnchantments(itemMeta.getEnchants())))
+        // Compare
+        for (Check check : CHECKS[bits & PROPERTIES])
+            if (!test(check, context))
                 return false;
-            // Flags
-            if (flagsSet && !flags.equals(itemMeta.getItemFlags()))
-                return false;
-            // Unbreakable
-            if (unbreakableSet && unbreakable != itemMeta.isUnbreakable())
+
+        // Blocked
+        return true;
+    }
+
+    /**
+     * Runs the given check against the given item.
+     *
+     * @param check   the check to run
+     * @param context context of the item to check, which has a meta
+     * @return whether the check passed
+     */
+    private boolean test(@NotNull Check check, @NotNull ItemContext context) {
+        switch (check) {
+            case UNBREAKABLE:
+                return ((bits & UNBREAKABLE) != 0) == context.getMeta().isUnbreakable();
+            case NAME:
+                return context.getDisplayNameHash() == name.hashCode() && name.equals(context.getDisplayName());
+            case LORE:
+                return matchesLore(context);
+            case FLAGS:
+                return flags.equals(context.getItemFlags());
+            case ENCHANTMENTS:
+                Map<Enchantment, Integer> enchantments = context.getEnchantments();
+                return enchantments != null && matchesEnchantments(enchantments);
+            default:
                 return false;
         }
+    }
 
-        // Blocked
+    /**
+     * Returns whether the lore of the given item matches this item's lore.
+     *
+     * @param context context of the item to compare
+     * @return if the lore is equal
+     */
+    private boolean matchesLore(@NotNull ItemContext context) {
+        List<String> lore = context.getLore();
+        if (lore == null || lore.size() != this.lore.length || context.getLoreHash() != loreHash)
+            return false;
+        for (int i = 0; i < this.lore.length; i++)
+            if (!this.lore[i].equals(lore.get(i)))
+                return false;
         return true;
     }
 
     /**
-     * Compares the given maps and returns whether the given enchantment map matches this item's enchantments.
+     * Records a match of this blocked item.
+     */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * Returns the amount of items this blocked item has matched.
+     *
+     * @return the amount of matches
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Adds the approximate retained size of this blocked item to the given estimator. Strings and lore shared with
+     * other blocked items are counted only once per estimator.
+     *
+     * @param estimator the estimator
+     */
+    public void estimateSize(@NotNull MemoryEstimator estimator) {
+        // This object and the hit counter
+        estimator.object(8, 8).object(1, 12);
+
+        // Properties
+        estimator.string(name);
+        if (lore != null) {
+            estimator.array(lore, lore.length, 4);
+            for (String line : lore)
+                estimator.string(line);
+        }
+        if (enchantments != null)
+            estimator.array(enchantments, enchantments.length, 4).array(levels, levels.length, 4);
+        if (flags != null)
+            estimator.object(2, 8);
+    }
+
+    /**
+     * Compares the given map and returns whether it matches this item's enchantments.
      *
      * @param enchantments enchantments of the item to compare
-     * @return if the maps are equal
+     * @return if the enchantments are equal
      */
     private boolean matchesEnchantments(@NotNull Map<Enchantment, Integer> enchantments) {
-        if (this.enchantments.size() != enchantments.size())
+        if (this.enchantments.length != enchantments.size())
             return false;
-        for (Enchantment enchantment : this.enchantments.keySet())
-            if (!enchantments.containsKey(enchantment) || (this.enchantments.get(enchantment) != null && !this.enchantments.get(enchantment).equals(enchantments.get(enchantment))))
+        for (int i = 0; i < this.enchantments.length; i++) {
+            Integer level = enchantments.get(this.enchantments[i]);
+            if (level == null || (levels[i] != ANY_LEVEL && levels[i] != level))
                 return false;
+        }
         return true;
     }
 }
\ No newline at end of file
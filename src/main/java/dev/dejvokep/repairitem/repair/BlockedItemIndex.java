@@ -0,0 +1,419 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.config.CatalogLoader;
+import dev.dejvokep.repairitem.utils.MemoryEstimator;
+import dev.dejvokep.repairitem.utils.VersionConstants;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable index of blocked items, bucketing them by the type they are restricted to.
+ * <p>
+ * An item is only compared against the blocked items restricted to its own type and against the wildcard blocked
+ * items (those applying to items of any type).
+ * <p>
+ * Within each bucket, the blocked items are ordered by the amount of items they have matched on this server, so the
+ * most frequently matching ones are compared first. The order is refreshed by {@link #reorder()}, which replaces the
+ * buckets (copy-on-write), so it never blocks nor disturbs concurrent lookups.
+ * <p>
+ * {@link TagRule Tag rules} are indexed by their key instead, so all of them are covered by one lookup per tag of the
+ * item.
+ */
+public class BlockedItemIndex {
+
+    /**
+     * Path to the blocked items.
+     */
+    public static final String PATH_BLOCKED_ITEMS = "blocked-items";
+
+    /**
+     * An empty bucket.
+     */
+    private static final BlockedItem[] EMPTY_BUCKET = new BlockedItem[0];
+
+    /**
+     * An empty tag rule bucket.
+     */
+    private static final TagRule[] EMPTY_TAG_BUCKET = new TagRule[0];
+
+    /**
+     * Version counter, incremented by every built index.
+     */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private volatile Map<Material, BlockedItem[]> typed;
+    private volatile BlockedItem[] wildcard;
+    private final Map<NamespacedKey, TagRule[]> tags;
+    private final int size, properties, wildcardProperties;
+    private final int[] typedProperties = new int[Material.values().length];
+    private final long version = VERSIONS.incrementAndGet();
+
+    /**
+     * Initializes the index with the given buckets.
+     *
+     * @param typed    blocked items restricted to a type, bucketed by the type
+     * @param wildcard blocked items applying to items of any type
+     * @param tags     tag rules, bucketed by their key
+     * @param size     total amount of blocked items and tag rules in the index
+     */
+    private BlockedItemIndex(@NotNull Map<Material, BlockedItem[]> typed, @NotNull BlockedItem[] wildcard, @NotNull Map<NamespacedKey, TagRule[]> tags, int size) {
+        this.typed = typed;
+        this.wildcard = wildcard;
+        this.tags = tags;
+        this.size = size;
+
+        // Properties compared by the blocked items of each bucket
+        int wildcardProperties = 0;
+        for (Map.Entry<Material, BlockedItem[]> entry : typed.entrySet())
+            for (BlockedItem blocked : entry.getValue())
+                typedProperties[entry.getKey().ordinal()] |= blocked.getProperties();
+        for (BlockedItem blocked : wildcard)
+            wildcardProperties |= blocked.getProperties();
+        this.wildcardProperties = wildcardProperties;
+
+        // Properties compared by any of the blocked items
+        int properties = wildcardProperties;
+        for (int typeProperties : typedProperties)
+            properties |= typeProperties;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns whether the given item matches any of the indexed blocked items.
+     *
+     * @param context context of the item to check
+     * @return whether the given item is blocked
+     */
+    public boolean isBlocked(@NotNull ItemContext context) {
+        return isTagged(context) || matchesBlockedItems(context);
+    }
+
+    /**
+     * Returns whether the given item matches any of the indexed tag rules.
+     *
+     * @param context context of the item to check
+     * @return whether the given item is blocked by a tag rule
+     */
+    public boolean isTagged(@NotNull ItemContext context) {
+        // No tag rules or no meta
+        if (tags.isEmpty() || !context.hasMeta())
+            return false;
+
+        Set<NamespacedKey> keys = context.getTagKeys();
+        if (keys == null)
+            return false;
+
+        // Look up the rules by the tags of the item
+        for (NamespacedKey key : keys) {
+            TagRule[] bucket = tags.get(key);
+            if (bucket == null)
+                continue;
+
+            for (TagRule rule : bucket) {
+                context.recordEvaluation();
+                if (rule.matches(context))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the given item matches any of the indexed blocked items, not including the tag rules.
+     *
+     * @param context context of the item to check
+     * @return whether the given item is blocked by a blocked item
+     */
+    public boolean matchesBlockedItems(@NotNull ItemContext context) {
+        // Items restricted to the type
+        BlockedItem[] bucket = typed.get(context.getItem().getType());
+        if (bucket != null && matchesAny(bucket, context))
+            return true;
+
+        // Items applying to any type
+        return matchesAny(wildcard, context);
+    }
+
+    /**
+     * Returns whether the given item matches any of the blocked items in the given bucket.
+     *
+     * @param bucket  the bucket to check against
+     * @param context context of the item to check
+     * @return whether the given item matches any of the blocked items in the bucket
+     */
+    private boolean matchesAny(@NotNull BlockedItem[] bucket, @NotNull ItemContext context) {
+        for (BlockedItem blocked : bucket) {
+            context.recordEvaluation();
+            if (blocked.compare(context)) {
+                blocked.recordHit();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reorders the blocked items in each bucket by the amount of items they have matched, descending. Can be called
+     * from any thread, but not concurrently with itself.
+     */
+    public void reorder() {
+        Map<Material, BlockedItem[]> typed = new EnumMap<>(Material.class);
+        for (Map.Entry<Material, BlockedItem[]> entry : this.typed.entrySet())
+            typed.put(entry.getKey(), sorted(entry.getValue()));
+
+        this.typed = typed;
+        this.wildcard = sorted(wildcard);
+    }
+
+    /**
+     * Returns a copy of the given bucket, sorted by the amount of items the blocked items have matched, descending.
+     * Blocked items with the same amount keep their order.
+     *
+     * @param bucket the bucket to sort
+     * @return the sorted copy
+     */
+    @NotNull
+    private static BlockedItem[] sorted(@NotNull BlockedItem[] bucket) {
+        // Snapshot the hits, as they change concurrently
+        long[] hits = new long[bucket.length];
+        Integer[] order = new Integer[bucket.length];
+        for (int i = 0; i < bucket.length; i++) {
+            hits[i] = bucket[i].getHits();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hits[b], hits[a]));
+
+        BlockedItem[] sorted = new BlockedItem[bucket.length];
+        for (int i = 0; i < bucket.length; i++)
+            sorted[i] = bucket[order[i]];
+        return sorted;
+    }
+
+    /**
+     * Returns the meta properties compared by any of the indexed blocked items, as a bitfield of the
+     * <code>BlockedItem.PROPERTY_*</code> constants.
+     *
+     * @return the compared meta properties
+     */
+    public int getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns whether any of the indexed blocked items (not including the tag rules) applies to items of the given
+     * type.
+     *
+     * @param type the type
+     * @return whether any blocked item applies to the type
+     */
+    public boolean appliesTo(@NotNull Material type) {
+        return wildcard.length != 0 || typed.containsKey(type);
+    }
+
+    /**
+     * Returns the meta properties compared by the indexed blocked items applying to items of the given type, as a
+     * bitfield of the <code>BlockedItem.PROPERTY_*</code> constants.
+     *
+     * @param type the type
+     * @return the compared meta properties
+     */
+    public int getProperties(@NotNull Material type) {
+        return wildcardProperties | typedProperties[type.ordinal()];
+    }
+
+    /**
+     * Returns the version of the rules in this index, unique to every built index.
+     *
+     * @return the version of the rules
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the total amount of blocked items and tag rules in this index.
+     *
+     * @return the amount of blocked items and tag rules in this index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the approximate retained size of this index (including all the blocked items and tag rules), assuming a
+     * 64-bit JVM with compressed references.
+     *
+     * @return the approximate size in bytes
+     */
+    public long estimateSize() {
+        MemoryEstimator estimator = new MemoryEstimator();
+        Map<Material, BlockedItem[]> typed = this.typed;
+        BlockedItem[] wildcard = this.wildcard;
+
+        // Blocked items
+        for (BlockedItem[] bucket : typed.values()) {
+            estimator.array(bucket, bucket.length, 4);
+            for (BlockedItem blocked : bucket)
+                blocked.estimateSize(estimator);
+        }
+        estimator.array(wildcard, wildcard.length, 4);
+        for (BlockedItem blocked : wildcard)
+            blocked.estimateSize(estimator);
+        estimator.array(typedProperties, typedProperties.length, 4);
+
+        // Tag rules
+        for (TagRule[] bucket : tags.values()) {
+            estimator.array(bucket, bucket.length, 4);
+            for (TagRule rule : bucket)
+                rule.estimateSize(estimator);
+        }
+        return estimator.getTotal();
+    }
+
+    /**
+     * Returns whether this index contains any tag rules.
+     *
+     * @return whether this index contains any tag rules
+     */
+    public boolean hasTagRules() {
+        return !tags.isEmpty();
+    }
+
+    /**
+     * Loads blocked items from the given configuration and, if enabled, from the {@link CatalogLoader catalogs}, and
+     * builds an index from them. Invalid blocked items are skipped and logged.
+     * <p>
+     * Loading catalogs takes a while, so it must not be enabled when called from the main thread, except on enable.
+     *
+     * @param plugin        the plugin instance
+     * @param configuration the configuration to load from
+     * @param catalogs      whether to load the catalogs
+     * @return the built index
+     */
+    @NotNull
+    public static BlockedItemIndex load(@NotNull RepairItem plugin, @NotNull YamlDocument configuration, boolean catalogs) {
+        List<BlockedItem> blockedItems = new ArrayList<>();
+        List<TagRule> tagRules = new ArrayList<>();
+        RulePool pool = new RulePool();
+
+        // Configuration
+        List<Map<?, ?>> sections = configuration.getOptionalMapList(PATH_BLOCKED_ITEMS).orElse(Collections.emptyList());
+        for (int i = 0; i < sections.size(); i++) {
+            try {
+                compile(sections.get(i), pool, blockedItems, tagRules);
+            } catch (IllegalArgumentException ex) {
+                plugin.getLogger().severe("Blocked item #" + (i + 1) + " could not be loaded, please check the configuration: " + ex.getMessage());
+            }
+        }
+
+        // Catalogs
+        if (catalogs)
+            new CatalogLoader(plugin.getLogger()).load(new File(plugin.getDataFolder(), CatalogLoader.FOLDER), pool, blockedItems, tagRules);
+
+        return build(blockedItems, tagRules);
+    }
+
+    /**
+     * Compiles a blocked item (or a {@link TagRule tag rule}, if the section defines a tag) from the given section and
+     * adds it to the corresponding list.
+     *
+     * @param section      a section map containing the properties
+     * @param pool         the pool to share the strings through
+     * @param blockedItems the list to add a blocked item to
+     * @param tagRules     the list to add a tag rule to
+     * @throws IllegalArgumentException if any of the properties is invalid
+     */
+    public static void compile(@NotNull Map<?, ?> section, @NotNull RulePool pool, @NotNull List<BlockedItem> blockedItems, @NotNull List<TagRule> tagRules) {
+        // Blocked item
+        if (!section.containsKey(TagRule.PATH_TAG)) {
+            blockedItems.add(new BlockedItem(section, pool));
+            return;
+        }
+
+        // Tag rule
+        if (VersionConstants.PERSISTENT_DATA_UNSUPPORTED)
+            throw new IllegalArgumentException("blocked items matched by a tag are available only on servers running version 1.16 and newer");
+        tagRules.add(new TagRule(section, pool));
+    }
+
+    /**
+     * Builds an index from the given blocked items.
+     *
+     * @param blockedItems the blocked items to index
+     * @return the built index
+     */
+    @NotNull
+    public static BlockedItemIndex build(@NotNull Collection<BlockedItem> blockedItems) {
+        return build(blockedItems, Collections.emptyList());
+    }
+
+    /**
+     * Builds an index from the given blocked items and tag rules.
+     *
+     * @param blockedItems the blocked items to index
+     * @param tagRules     the tag rules to index
+     * @return the built index
+     */
+    @NotNull
+    public static BlockedItemIndex build(@NotNull Collection<BlockedItem> blockedItems, @NotNull Collection<TagRule> tagRules) {
+        Map<Material, List<BlockedItem>> buckets = new EnumMap<>(Material.class);
+        List<BlockedItem> wildcard = new ArrayList<>();
+
+        // Bucket by type
+        for (BlockedItem blocked : blockedItems) {
+            Material type = blocked.getType();
+            if (type == null)
+                wildcard.add(blocked);
+            else
+                buckets.computeIfAbsent(type, key -> new ArrayList<>()).add(blocked);
+        }
+
+        // Compile the buckets
+        Map<Material, BlockedItem[]> typed = new EnumMap<>(Material.class);
+        for (Map.Entry<Material, List<BlockedItem>> entry : buckets.entrySet())
+            typed.put(entry.getKey(), entry.getValue().toArray(EMPTY_BUCKET));
+
+        // Bucket tag rules by key
+        Map<NamespacedKey, List<TagRule>> tagBuckets = new HashMap<>();
+        for (TagRule rule : tagRules)
+            tagBuckets.computeIfAbsent(rule.getKey(), key -> new ArrayList<>()).add(rule);
+        Map<NamespacedKey, TagRule[]> tags = new HashMap<>();
+        for (Map.Entry<NamespacedKey, List<TagRule>> entry : tagBuckets.entrySet())
+            tags.put(entry.getKey(), entry.getValue().toArray(EMPTY_TAG_BUCKET));
+
+        return new BlockedItemIndex(typed, wildcard.toArray(EMPTY_BUCKET), tags, blockedItems.size() + tagRules.size());
+    }
+
+    /**
+     * Returns an empty index.
+     *
+     * @return an empty index
+     */
+    @NotNull
+    public static BlockedItemIndex empty() {
+        return new BlockedItemIndex(new EnumMap<>(Material.class), EMPTY_BUCKET, Collections.emptyMap(), 0);
+    }
+
+}
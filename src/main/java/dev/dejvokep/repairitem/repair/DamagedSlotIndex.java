@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index of player inventory slots which might hold a damaged item, allowing repairs to visit only those slots. Must
+ * only be used from the main thread.
+ * <p>
+ * Per player, the index holds a bitset of raw slots (as defined by {@link SlotPlan}), which is a superset of the slots
+ * actually holding a damaged item, as long as the index is {@link #isTrusted(Player) trusted}. It is kept up to date
+ * by the {@link dev.dejvokep.repairitem.listener.DamagedSlotListener listener}; changes it cannot follow (e.g.
+ * inventory interaction) {@link #invalidate(Player) invalidate} it. An invalidated or expired index is rebuilt by a
+ * full scan on the next repair.
+ */
+public class DamagedSlotIndex {
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final long maxAge;
+
+    /**
+     * Initializes an empty index.
+     *
+     * @param maxAge time (in nanoseconds) after which an index must be rebuilt by a full scan, as changes made by other
+     *               plugins cannot be followed
+     */
+    public DamagedSlotIndex(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns whether the index of the given player can be trusted.
+     *
+     * @param player the player
+     * @return whether the index can be trusted
+     */
+    public boolean isTrusted(@NotNull Player player) {
+        Entry entry = entries.get(player.getUniqueId());
+        return entry != null && entry.trusted && System.nanoTime() - entry.built < maxAge;
+    }
+
+    /**
+     * Returns the slots of the given player which might hold a damaged item. The result is meaningful only if the
+     * index is {@link #isTrusted(Player) trusted}.
+     *
+     * @param player the player
+     * @return the slots which might hold a damaged item
+     */
+    public long get(@NotNull Player player) {
+        Entry entry = entries.get(player.getUniqueId());
+        return entry == null ? 0 : entry.damaged;
+    }
+
+    /**
+     * Replaces the index of the given player with the result of a full scan, making it trusted.
+     *
+     * @param player  the player
+     * @param damaged the slots holding a damaged item
+     */
+    public void rebuild(@NotNull Player player, long damaged) {
+        Entry entry = entries.computeIfAbsent(player.getUniqueId(), key -> new Entry());
+        entry.damaged = damaged;
+        entry.trusted = true;
+        entry.built = System.nanoTime();
+    }
+
+    /**
+     * Updates the index of the given player after the given slots were repaired.
+     *
+     * @param player  the player
+     * @param visited the slots which were repaired
+     * @param damaged the visited slots which still hold a damaged item (the blocked items)
+     */
+    public void update(@NotNull Player player, long visited, long damaged) {
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry != null)
+            entry.damaged = (entry.damaged & ~visited) | damaged;
+    }
+
+    /**
+     * Marks the given slot as holding a damaged item.
+     *
+     * @param player the player
+     * @param slot   the raw slot
+     */
+    public void markDamaged(@NotNull Player player, int slot) {
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry != null)
+            entry.damaged |= 1L << slot;
+    }
+
+    /**
+     * Swaps the states of the given slots.
+     *
+     * @param player the player
+     * @param first  the first raw slot
+     * @param second the second raw slot
+     */
+    public void swap(@NotNull Player player, int first, int second) {
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry == null)
+            return;
+
+        long firstBit = (entry.damaged >>> first) & 1L, secondBit = (entry.damaged >>> second) & 1L;
+        entry.damaged = (entry.damaged & ~(1L << first) & ~(1L << second)) | (firstBit << second) | (secondBit << first);
+    }
+
+    /**
+     * Invalidates the index of the given player, so it is rebuilt on the next repair.
+     *
+     * @param player the player
+     */
+    public void invalidate(@NotNull Player player) {
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry != null)
+            entry.trusted = false;
+    }
+
+    /**
+     * Removes the index of the given player.
+     *
+     * @param player the player
+     */
+    public void remove(@NotNull Player player) {
+        entries.remove(player.getUniqueId());
+    }
+
+    /**
+     * Index of one player.
+     */
+    private static class Entry {
+
+        private long damaged = 0, built = 0;
+        private boolean trusted = false;
+
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.utils.VersionConstants;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Accessor of item durability, abstracting the durability system of the server version in use.
+ * <p>
+ * Damage is read and written as a primitive, with no boxing involved.
+ */
+public interface DurabilityAccessor {
+
+    /**
+     * Returns whether the given item might be damaged, without decoding its meta. If <code>false</code>, the item is
+     * certainly not damaged.
+     *
+     * @param itemStack the item
+     * @return whether the item might be damaged
+     */
+    boolean mayBeDamaged(@NotNull ItemStack itemStack);
+
+    /**
+     * Returns the damage of the item in the given context. An item which cannot be damaged has damage of
+     * <code>0</code>.
+     *
+     * @param context context of the item
+     * @return the damage of the item
+     */
+    int getDamage(@NotNull ItemContext context);
+
+    /**
+     * Sets the damage of the item in the given context.
+     * <p>
+     * If the damage is stored in the item's meta, the meta is only {@link ItemContext#markChanged() marked as
+     * changed} and it is up to the caller to {@link ItemContext#writeBack() write it back}.
+     *
+     * @param context context of the item
+     * @param damage  the damage to set
+     */
+    void setDamage(@NotNull ItemContext context, int damage);
+
+    /**
+     * Creates an accessor for the durability system of the server version in use.
+     *
+     * @return the accessor
+     */
+    @NotNull
+    static DurabilityAccessor create() {
+        return VersionConstants.LEGACY_DURABILITY ? new LegacyDurabilityAccessor() : new ModernDurabilityAccessor();
+    }
+
+}
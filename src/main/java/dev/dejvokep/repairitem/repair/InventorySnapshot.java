@@ -0,0 +1,149 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A snapshot of the items of a player which might need a repair, used to evaluate them off the main thread.
+ * <p>
+ * The snapshot is {@link Repairer#capture(Player, dev.dejvokep.repairitem.command.function.CommandFunction) captured}
+ * on the main thread, {@link Repairer#scan(InventorySnapshot) scanned} on any thread and
+ * {@link Repairer#apply(InventorySnapshot) applied} back on the main thread. Slots are identified by their raw
+ * indices, as defined by {@link SlotPlan}.
+ * <p>
+ * Container items whose nested contents might need a repair are not copied; they are only remembered and repaired
+ * when applied, as decoding their contents is the expensive part.
+ */
+public class InventorySnapshot {
+
+    private final Player player;
+    private final Inventory inventory;
+    private final ItemStack[] copies = new ItemStack[SlotPlan.SIZE];
+    private final RepairAccumulator result = new RepairAccumulator();
+    private long candidates = 0, damaged = 0, containers = 0;
+
+    /**
+     * Initializes an empty snapshot.
+     *
+     * @param player    the player whose items are captured
+     * @param inventory inventory of the player whose items are captured
+     */
+    InventorySnapshot(@NotNull Player player, @NotNull Inventory inventory) {
+        this.player = player;
+        this.inventory = inventory;
+    }
+
+    /**
+     * Adds a copy of an item which might need a repair.
+     *
+     * @param slot the raw slot index of the item
+     * @param copy copy of the item
+     */
+    void addCandidate(int slot, @NotNull ItemStack copy) {
+        copies[slot] = copy;
+        candidates |= 1L << slot;
+    }
+
+    /**
+     * Adds a container item whose nested contents might need a repair.
+     *
+     * @param slot the raw slot index of the item
+     */
+    void addContainer(int slot) {
+        containers |= 1L << slot;
+    }
+
+    /**
+     * Marks the item in the given slot as damaged and not blocked, so its damage is reset when applied.
+     *
+     * @param slot the raw slot index of the item
+     */
+    void markDamaged(int slot) {
+        damaged |= 1L << slot;
+    }
+
+    /**
+     * Returns the copy of the item in the given slot, or <code>null</code> if not a candidate.
+     *
+     * @param slot the raw slot index of the item
+     * @return the copy of the item
+     */
+    ItemStack getCopy(int slot) {
+        return copies[slot];
+    }
+
+    /**
+     * Returns the bitset of the raw slot indices holding items which might need a repair.
+     *
+     * @return the bitset of the candidate slots
+     */
+    long getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns the bitset of the raw slot indices holding items whose damage is to be reset.
+     *
+     * @return the bitset of the damaged slots
+     */
+    long getDamaged() {
+        return damaged;
+    }
+
+    /**
+     * Returns the bitset of the raw slot indices holding containers whose nested contents might need a repair.
+     *
+     * @return the bitset of the container slots
+     */
+    long getContainers() {
+        return containers;
+    }
+
+    /**
+     * Returns the player whose items are captured.
+     *
+     * @return the player
+     */
+    @NotNull
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the inventory whose items are captured.
+     *
+     * @return the inventory
+     */
+    @NotNull
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Returns the accumulator the results are recorded into.
+     *
+     * @return the result
+     */
+    @NotNull
+    public RepairAccumulator getResult() {
+        return result;
+    }
+
+}
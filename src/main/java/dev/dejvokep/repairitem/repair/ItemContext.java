@@ -0,0 +1,255 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluation context of one item.
+ * <p>
+ * As every call to {@link ItemStack#getItemMeta()} clones the meta, the context decodes it at most once and shares it
+ * between all blocked item comparisons and the durability repair. The meta is written back to the item only if it
+ * was {@link #markChanged() changed}.
+ * <p>
+ * The meta properties compared by blocked items are likewise obtained at most once (as each getter copies or
+ * serializes them) and shared between all the comparisons, together with the hashes of the name and lore.
+ */
+public class ItemContext {
+
+    private final ItemStack itemStack;
+    private final boolean hasMeta;
+    private ItemMeta meta;
+    private boolean decoded = false, changed = false;
+    private int evaluations = 0;
+
+    // Meta properties
+    private String displayName;
+    private List<String> lore;
+    private Set<ItemFlag> flags;
+    private Map<Enchantment, Integer> enchantments;
+    private PersistentDataContainer persistentData;
+    private Set<NamespacedKey> tagKeys;
+    private int displayNameHash, loreHash;
+    private boolean displayNameDecoded = false, loreDecoded = false, flagsDecoded = false, enchantmentsDecoded = false,
+            tagKeysDecoded = false;
+
+    /**
+     * Initializes the context for the given item.
+     *
+     * @param itemStack the item
+     */
+    public ItemContext(@NotNull ItemStack itemStack) {
+        this.itemStack = itemStack;
+        this.hasMeta = itemStack.hasItemMeta();
+    }
+
+    /**
+     * Returns the item.
+     *
+     * @return the item
+     */
+    @NotNull
+    public ItemStack getItem() {
+        return itemStack;
+    }
+
+    /**
+     * Returns whether the item has any meta. If not, the meta returned by {@link #getMeta()} is empty.
+     *
+     * @return whether the item has any meta
+     */
+    public boolean hasMeta() {
+        return hasMeta;
+    }
+
+    /**
+     * Returns the meta of the item, decoding it on the first call.
+     *
+     * @return the meta of the item, or <code>null</code> if the item cannot have one
+     */
+    @Nullable
+    public ItemMeta getMeta() {
+        if (!decoded) {
+            meta = itemStack.getItemMeta();
+            decoded = true;
+        }
+        return meta;
+    }
+
+    /**
+     * Returns the display name of the item, decoding it on the first call.
+     *
+     * @return the display name, or <code>null</code> if the item has none
+     */
+    @Nullable
+    public String getDisplayName() {
+        if (!displayNameDecoded) {
+            ItemMeta meta = getMeta();
+            displayName = meta != null && meta.hasDisplayName() ? meta.getDisplayName() : null;
+            displayNameHash = displayName == null ? 0 : displayName.hashCode();
+            displayNameDecoded = true;
+        }
+        return displayName;
+    }
+
+    /**
+     * Returns hash of the {@link #getDisplayName() display name}, or <code>0</code> if the item has none.
+     *
+     * @return hash of the display name
+     */
+    public int getDisplayNameHash() {
+        getDisplayName();
+        return displayNameHash;
+    }
+
+    /**
+     * Returns the lore of the item, decoding it on the first call. The list must not be modified.
+     *
+     * @return the lore, or <code>null</code> if the item has none
+     */
+    @Nullable
+    public List<String> getLore() {
+        if (!loreDecoded) {
+            ItemMeta meta = getMeta();
+            lore = meta != null && meta.hasLore() ? meta.getLore() : null;
+            loreHash = lore == null ? 0 : lore.hashCode();
+            loreDecoded = true;
+        }
+        return lore;
+    }
+
+    /**
+     * Returns hash of the {@link #getLore() lore} (as defined by {@link List#hashCode()}), or <code>0</code> if the
+     * item has none.
+     *
+     * @return hash of the lore
+     */
+    public int getLoreHash() {
+        getLore();
+        return loreHash;
+    }
+
+    /**
+     * Returns the flags of the item, decoding them on the first call. The set must not be modified.
+     *
+     * @return the flags, or <code>null</code> if the item cannot have a meta
+     */
+    @Nullable
+    public Set<ItemFlag> getItemFlags() {
+        if (!flagsDecoded) {
+            ItemMeta meta = getMeta();
+            flags = meta == null ? null : meta.getItemFlags();
+            flagsDecoded = true;
+        }
+        return flags;
+    }
+
+    /**
+     * Returns the enchantments of the item, decoding them on the first call. The map must not be modified.
+     *
+     * @return the enchantments, or <code>null</code> if the item has none
+     */
+    @Nullable
+    public Map<Enchantment, Integer> getEnchantments() {
+        if (!enchantmentsDecoded) {
+            ItemMeta meta = getMeta();
+            enchantments = meta != null && meta.hasEnchants() ? meta.getEnchants() : null;
+            enchantmentsDecoded = true;
+        }
+        return enchantments;
+    }
+
+    /**
+     * Returns the persistent data container of the item. Available only on servers running version 1.14 and newer.
+     *
+     * @return the persistent data container, or <code>null</code> if the item cannot have a meta
+     */
+    @Nullable
+    public PersistentDataContainer getPersistentData() {
+        if (persistentData == null) {
+            ItemMeta meta = getMeta();
+            persistentData = meta == null ? null : meta.getPersistentDataContainer();
+        }
+        return persistentData;
+    }
+
+    /**
+     * Returns the keys of the tags stored in the {@link #getPersistentData() persistent data container}, decoding them
+     * on the first call. The set must not be modified. Available only on servers running version 1.16 and newer.
+     *
+     * @return the keys of the tags, or <code>null</code> if the item has none
+     */
+    @Nullable
+    public Set<NamespacedKey> getTagKeys() {
+        if (!tagKeysDecoded) {
+            PersistentDataContainer container = hasMeta ? getPersistentData() : null;
+            tagKeys = container == null ? null : container.getKeys();
+            if (tagKeys != null && tagKeys.isEmpty())
+                tagKeys = null;
+            tagKeysDecoded = true;
+        }
+        return tagKeys;
+    }
+
+    /**
+     * Records an evaluation of a blocked item rule against the item.
+     */
+    public void recordEvaluation() {
+        evaluations++;
+    }
+
+    /**
+     * Returns the amount of blocked item rules evaluated against the item.
+     *
+     * @return the amount of evaluations
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Marks the meta returned by {@link #getMeta()} as changed, so it is written back by {@link #writeBack()}.
+     */
+    public void markChanged() {
+        changed = true;
+    }
+
+    /**
+     * Writes the meta back to the item, only if it was {@link #markChanged() changed}.
+     *
+     * @return whether the meta was written back
+     */
+    public boolean writeBack() {
+        if (!changed || meta == null)
+            return false;
+
+        itemStack.setItemMeta(meta);
+        changed = false;
+        return true;
+    }
+
+}
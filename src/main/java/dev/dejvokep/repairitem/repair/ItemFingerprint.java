@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * An immutable fingerprint of an item, consisting of its type and those meta properties which are compared by the
+ * blocked items. Two items with equal fingerprints are either both blocked, or neither of them.
+ * <p>
+ * The hash is computed once, mostly from the name and lore hashes already cached by the {@link ItemContext}.
+ */
+public class ItemFingerprint {
+
+    private final Material type;
+    private final boolean hasMeta;
+    private final Object name, lore, enchantments, flags, unbreakable;
+    private final int hash;
+
+    /**
+     * Creates a fingerprint of the given item.
+     *
+     * @param context    context of the item
+     * @param properties the meta properties to include, as a bitfield of the <code>BlockedItem.PROPERTY_*</code>
+     *                   constants
+     */
+    public ItemFingerprint(@NotNull ItemContext context, int properties) {
+        this.type = context.getItem().getType();
+        this.hasMeta = context.hasMeta() && context.getMeta() != null;
+
+        // Meta properties
+        this.name = hasMeta && (properties & BlockedItem.PROPERTY_NAME) != 0 ? context.getDisplayName() : null;
+        this.lore = hasMeta && (properties & BlockedItem.PROPERTY_LORE) != 0 ? context.getLore() : null;
+        this.enchantments = hasMeta && (properties & BlockedItem.PROPERTY_ENCHANTMENTS) != 0 ? context.getEnchantments() : null;
+        this.flags = hasMeta && (properties & BlockedItem.PROPERTY_FLAGS) != 0 ? context.getItemFlags() : null;
+        this.unbreakable = hasMeta && (properties & BlockedItem.PROPERTY_UNBREAKABLE) != 0 ? context.getMeta().isUnbreakable() : null;
+
+        // Hash
+        int hash = 31 * type.hashCode() + Boolean.hashCode(hasMeta);
+        hash = 31 * hash + (name == null ? 0 : context.getDisplayNameHash());
+        hash = 31 * hash + (lore == null ? 0 : context.getLoreHash());
+        hash = 31 * hash + Objects.hashCode(enchantments);
+        hash = 31 * hash + Objects.hashCode(flags);
+        this.hash = 31 * hash + Objects.hashCode(unbreakable);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ItemFingerprint)) return false;
+        ItemFingerprint that = (ItemFingerprint) o;
+        return hash == that.hash && type == that.type && hasMeta == that.hasMeta && Objects.equals(unbreakable, that.unbreakable)
+                && Objects.equals(name, that.name) && Objects.equals(flags, that.flags) && Objects.equals(enchantments, that.enchantments)
+                && Objects.equals(lore, that.lore);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Durability accessor for versions older than 1.13, where the durability is stored directly in the item.
+ */
+public class LegacyDurabilityAccessor implements DurabilityAccessor {
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public boolean mayBeDamaged(@NotNull ItemStack itemStack) {
+        return itemStack.getDurability() != 0;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public int getDamage(@NotNull ItemContext context) {
+        return context.getItem().getDurability();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void setDamage(@NotNull ItemContext context, int damage) {
+        context.getItem().setDurability((short) damage);
+    }
+
+}
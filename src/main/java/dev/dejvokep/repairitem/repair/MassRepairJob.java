@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * A repair job for multiple players, processing them in phases:
+ * <ol>
+ *     <li>{@link Phase#CAPTURE}: inventory snapshots of the players are captured on the main thread,</li>
+ *     <li>{@link Phase#SCAN}: damage and blocked items are evaluated against the snapshots off the main thread
+ *     (in parallel for large targets),</li>
+ *     <li>{@link Phase#APPLY}: damage of the items found damaged is reset back on the main thread.</li>
+ * </ol>
+ * The main thread phases are spread across multiple ticks, within a per-tick time budget. If the server's TPS,
+ * estimated from the intervals between the runs, drops below the configured minimum, the budget of the tick is halved.
+ * At least one player is processed per tick, so the job always progresses.
+ */
+public class MassRepairJob extends BukkitRunnable {
+
+    /**
+     * Phase of the job.
+     */
+    public enum Phase {
+        /**
+         * Capturing the snapshots on the main thread.
+         */
+        CAPTURE,
+        /**
+         * Scanning the snapshots off the main thread.
+         */
+        SCAN,
+        /**
+         * Applying the snapshots on the main thread.
+         */
+        APPLY
+    }
+
+    /**
+     * Amount of snapshots from which the scan is run in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Nanoseconds in one second.
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+    /**
+     * The maximum TPS.
+     */
+    private static final double MAX_TPS = 20D;
+
+    private final RepairItem plugin;
+    private final MassRepairScheduler scheduler;
+    private final Repairer repairer;
+    private final CommandFunction function;
+    private final List<Player> players;
+    private final List<InventorySnapshot> snapshots;
+    private final long budget;
+    private final double minTps;
+    private final BiConsumer<Player, RepairAccumulator> playerCallback;
+    private final Consumer<RepairAccumulator> finishCallback;
+
+    private final RepairAccumulator globalResult = new RepairAccumulator();
+    private final long submitted = System.nanoTime();
+    private volatile Phase phase = Phase.CAPTURE;
+    private volatile boolean scanned = false;
+    private int index = 0;
+    private long lastRun = 0, averageInterval = 0;
+
+    /**
+     * Initializes the job.
+     *
+     * @param plugin         the plugin instance
+     * @param scheduler      the scheduler which submitted the job
+     * @param function       the repair function to run
+     * @param players        players to repair, a snapshot of which is taken
+     * @param budget         time which can be spent repairing per tick, in nanoseconds
+     * @param minTps         TPS below which the budget is halved
+     * @param playerCallback callback called with each repaired player and their result
+     * @param finishCallback callback called with the aggregated result once all players are repaired
+     */
+    MassRepairJob(@NotNull RepairItem plugin, @NotNull MassRepairScheduler scheduler, @NotNull CommandFunction function, @NotNull Collection<? extends Player> players, long budget, double minTps, @NotNull BiConsumer<Player, RepairAccumulator> playerCallback, @NotNull Consumer<RepairAccumulator> finishCallback) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.repairer = plugin.getRepairer();
+        this.function = function;
+        this.players = new ArrayList<>(players);
+        this.snapshots = new ArrayList<>(this.players.size());
+        this.budget = budget;
+        this.minTps = minTps;
+        this.playerCallback = playerCallback;
+        this.finishCallback = finishCallback;
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime(), budget = this.budget;
+
+        // Back off if the server is lagging
+        if (lastRun != 0) {
+            averageInterval = averageInterval == 0 ? now - lastRun : (averageInterval * 3 + now - lastRun) / 4;
+            if (Math.min(MAX_TPS, NANOS_PER_SECOND / averageInterval) < minTps)
+                budget /= 2;
+        }
+        lastRun = now;
+
+        switch (phase) {
+            case CAPTURE:
+                capture(now + budget);
+                return;
+            case SCAN:
+                // Still scanning
+                if (!scanned)
+                    return;
+
+                // Continue with applying
+                index = 0;
+                phase = Phase.APPLY;
+            case APPLY:
+                apply(now + budget);
+        }
+    }
+
+    /**
+     * Captures snapshots until the given deadline. Once all are captured, starts the scan.
+     *
+     * @param deadline the deadline, in {@link System#nanoTime() nanoseconds}
+     */
+    private void capture(long deadline) {
+        while (index < players.size()) {
+            Player player = players.get(index++);
+
+            // Went offline since submitted
+            if (player.isOnline())
+                snapshots.add(repairer.capture(player, function));
+
+            // Out of budget
+            if (System.nanoTime() >= deadline)
+                return;
+        }
+
+        // Scan off the main thread
+        phase = Phase.SCAN;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                if (snapshots.size() >= PARALLEL_THRESHOLD)
+                    snapshots.parallelStream().forEach(repairer::scan);
+                else
+                    snapshots.forEach(repairer::scan);
+            } catch (Exception ex) {
+                plugin.getLogger().log(Level.SEVERE, "An error occurred whilst scanning items to repair! If the problem persists, please report it.", ex);
+            } finally {
+                scanned = true;
+            }
+        });
+    }
+
+    /**
+     * Applies snapshots until the given deadline. Once all are applied, finishes the job.
+     *
+     * @param deadline the deadline, in {@link System#nanoTime() nanoseconds}
+     */
+    private void apply(long deadline) {
+        while (index < snapshots.size()) {
+            InventorySnapshot snapshot = snapshots.get(index++);
+
+            // Went offline since captured
+            if (snapshot.getPlayer().isOnline()) {
+                repairer.apply(snapshot);
+                globalResult.add(snapshot.getResult());
+                playerCallback.accept(snapshot.getPlayer(), snapshot.getResult());
+            }
+
+            // Out of budget
+            if (System.nanoTime() >= deadline)
+                return;
+        }
+
+        cancel();
+        scheduler.finished(this);
+        plugin.getStats().recordMassRepair(System.nanoTime() - submitted);
+        finishCallback.accept(globalResult);
+    }
+
+    /**
+     * Returns the current phase of the job.
+     *
+     * @return the current phase
+     */
+    @NotNull
+    public Phase getPhase() {
+        return phase;
+    }
+
+}
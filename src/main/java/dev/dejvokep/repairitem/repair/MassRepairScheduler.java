@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.config.Settings;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler of {@link MassRepairJob mass repair jobs}.
+ */
+public class MassRepairScheduler {
+
+    private final RepairItem plugin;
+    private final Set<MassRepairJob> jobs = new HashSet<>();
+
+    /**
+     * Initializes the scheduler.
+     *
+     * @param plugin the plugin instance
+     */
+    public MassRepairScheduler(@NotNull RepairItem plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Submits a job repairing the given players, starting it the next tick. The callbacks are called from the main
+     * thread.
+     *
+     * @param function       the repair function to run
+     * @param players        players to repair, a snapshot of which is taken
+     * @param playerCallback callback called with each repaired player and their result
+     * @param finishCallback callback called with the aggregated result once all players are repaired
+     * @return the submitted job
+     */
+    @NotNull
+    public MassRepairJob submit(@NotNull CommandFunction function, @NotNull Collection<? extends Player> players, @NotNull BiConsumer<Player, RepairAccumulator> playerCallback, @NotNull Consumer<RepairAccumulator> finishCallback) {
+        Settings settings = plugin.getSettings();
+        MassRepairJob job = new MassRepairJob(plugin, this, function, players, settings.getMassRepairBudget(), settings.getMassRepairMinTps(), playerCallback, finishCallback);
+        jobs.add(job);
+        job.runTaskTimer(plugin, 1L, 1L);
+        return job;
+    }
+
+    /**
+     * Called by a job once it is finished.
+     *
+     * @param job the finished job
+     */
+    void finished(@NotNull MassRepairJob job) {
+        jobs.remove(job);
+    }
+
+    /**
+     * Returns the jobs which are currently running.
+     *
+     * @return the running jobs
+     */
+    @NotNull
+    public Set<MassRepairJob> getJobs() {
+        return Collections.unmodifiableSet(jobs);
+    }
+
+}
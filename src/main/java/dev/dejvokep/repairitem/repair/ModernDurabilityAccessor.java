@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Durability accessor for versions 1.13 and newer, where the durability is stored in the {@link Damageable} meta.
+ */
+public class ModernDurabilityAccessor implements DurabilityAccessor {
+
+    @Override
+    public boolean mayBeDamaged(@NotNull ItemStack itemStack) {
+        // Damage is stored in the meta
+        return itemStack.hasItemMeta();
+    }
+
+    @Override
+    public int getDamage(@NotNull ItemContext context) {
+        // Damage is stored in the meta, an item without one is not damaged
+        if (!context.hasMeta())
+            return 0;
+
+        ItemMeta meta = context.getMeta();
+        return meta instanceof Damageable ? ((Damageable) meta).getDamage() : 0;
+    }
+
+    @Override
+    public void setDamage(@NotNull ItemContext context, int damage) {
+        ItemMeta meta = context.getMeta();
+        if (!(meta instanceof Damageable))
+            return;
+
+        ((Damageable) meta).setDamage(damage);
+        context.markChanged();
+    }
+
+}
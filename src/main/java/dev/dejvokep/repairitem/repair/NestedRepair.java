@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Limits of one repair invocation descending into items nested in shulker boxes and bundles.
+ * <p>
+ * Decoding the contents of a container item is expensive, so a container is opened only if it might hold anything -
+ * it is a shulker box or a bundle with a meta, not deeper than the maximum depth and the item budget is not spent.
+ * Each nested item visited takes one item from the budget.
+ */
+public class NestedRepair {
+
+    /**
+     * Shulker box types (1.11 and newer).
+     */
+    private static final Set<Material> SHULKER_BOXES = EnumSet.noneOf(Material.class);
+
+    /**
+     * Bundle type (1.17 and newer), or <code>null</code> if unsupported.
+     */
+    private static final Material BUNDLE = Material.getMaterial("BUNDLE");
+
+    static {
+        for (Material material : Material.values())
+            if (material.name().endsWith("SHULKER_BOX"))
+                SHULKER_BOXES.add(material);
+    }
+
+    private final int maxDepth;
+    private int remaining;
+
+    /**
+     * Initializes the limits.
+     *
+     * @param maxDepth the maximum depth of containers to open, where containers directly in the repaired inventory are
+     *                 at depth <code>1</code>
+     * @param maxItems the maximum amount of nested items to visit
+     */
+    private NestedRepair(int maxDepth, int maxItems) {
+        this.maxDepth = maxDepth;
+        this.remaining = maxItems;
+    }
+
+    /**
+     * Returns whether the given item is a container which should be opened at the given depth.
+     *
+     * @param itemStack the item
+     * @param depth     depth of the item's contents
+     * @return whether to open the container
+     */
+    public boolean canOpen(@Nullable ItemStack itemStack, int depth) {
+        return depth <= maxDepth && remaining > 0 && itemStack != null && isContainer(itemStack.getType()) && itemStack.hasItemMeta();
+    }
+
+    /**
+     * Takes one item from the budget.
+     *
+     * @return whether the budget allowed the item to be visited
+     */
+    public boolean take() {
+        if (remaining <= 0)
+            return false;
+        remaining--;
+        return true;
+    }
+
+    /**
+     * Returns the amount of nested items which can still be visited.
+     *
+     * @return the remaining amount of items
+     */
+    public int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Creates limits for one repair invocation. If the given maximum depth or amount of items is not positive, nested
+     * repair is disabled and <code>null</code> is returned.
+     *
+     * @param maxDepth the maximum depth of containers to open
+     * @param maxItems the maximum amount of nested items to visit
+     * @return the limits, or <code>null</code> if disabled
+     */
+    @Nullable
+    public static NestedRepair create(int maxDepth, int maxItems) {
+        return maxDepth <= 0 || maxItems <= 0 ? null : new NestedRepair(maxDepth, maxItems);
+    }
+
+    /**
+     * Returns whether the given type is a container whose contents can be repaired.
+     *
+     * @param type the type
+     * @return whether the type is a container
+     */
+    public static boolean isContainer(@Nullable Material type) {
+        return type != null && (type == BUNDLE || SHULKER_BOXES.contains(type));
+    }
+
+    /**
+     * Returns whether the given type is a bundle.
+     *
+     * @param type the type
+     * @return whether the type is a bundle
+     */
+    public static boolean isBundle(@NotNull Material type) {
+        return type == BUNDLE;
+    }
+
+}
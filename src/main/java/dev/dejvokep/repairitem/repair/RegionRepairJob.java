@@ -0,0 +1,305 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.utils.Placeholder;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Chest;
+import org.bukkit.command.CommandSender;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * A repair job for items in block inventories (chests, barrels, hoppers...) within a cuboid region.
+ * <p>
+ * The chunks spanned by the region are processed a slice per tick, within a per-tick time budget; at least one chunk is
+ * processed per tick, so the job always progresses. Items are repaired one by one, as by
+ * {@link Repairer#repair(ItemStack, RepairAccumulator)}, respecting the blocked items.
+ * <p>
+ * Unloaded chunks are loaded asynchronously if the server supports it (Paper's <code>World#getChunkAtAsync</code>,
+ * with a bounded amount of loads in flight) and processed once loaded. Otherwise, they are skipped, as loading them
+ * synchronously would stall the server.
+ */
+public class RegionRepairJob extends BukkitRunnable {
+
+    /**
+     * Handle of <code>World#getChunkAtAsync(int, int)</code>, or <code>null</code> if unsupported.
+     */
+    private static final MethodHandle GET_CHUNK_AT_ASYNC = findChunkLoader();
+
+    /**
+     * Maximum amount of chunks being loaded at once.
+     */
+    private static final int MAX_PENDING_LOADS = 16;
+
+    private final RepairItem plugin;
+    private final Repairer repairer;
+    private final CommandSender sender;
+    private final World world;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int chunkMinX, chunkMinZ, chunkWidth, total;
+    private final long budget, progressInterval;
+
+    private final RepairAccumulator result = new RepairAccumulator();
+    private final Deque<Chunk> loaded = new ArrayDeque<>();
+    private int index = 0, pending = 0, processed = 0, skipped = 0, containers = 0;
+    private long lastProgress = System.nanoTime();
+
+    /**
+     * Initializes the job for the given region. The region bounds are inclusive.
+     *
+     * @param plugin the plugin instance
+     * @param sender the sender to report the progress and result to
+     * @param world  the world
+     * @param minX   the min X coordinate
+     * @param minY   the min Y coordinate
+     * @param minZ   the min Z coordinate
+     * @param maxX   the max X coordinate
+     * @param maxY   the max Y coordinate
+     * @param maxZ   the max Z coordinate
+     */
+    public RegionRepairJob(@NotNull RepairItem plugin, @NotNull CommandSender sender, @NotNull World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.plugin = plugin;
+        this.repairer = plugin.getRepairer();
+        this.sender = sender;
+        this.world = world;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.chunkMinX = minX >> 4;
+        this.chunkMinZ = minZ >> 4;
+        this.chunkWidth = (maxX >> 4) - chunkMinX + 1;
+        this.total = getChunks(minX, minZ, maxX, maxZ);
+        this.budget = plugin.getSettings().getRegionRepairBudget();
+        this.progressInterval = plugin.getSettings().getRegionRepairProgressInterval();
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + budget;
+        do {
+            // Loaded asynchronously
+            Chunk chunk = loaded.poll();
+            if (chunk != null) {
+                process(chunk);
+                continue;
+            }
+
+            // All requested
+            if (index >= total) {
+                // Finished
+                if (pending == 0) {
+                    finish();
+                    return;
+                }
+                // Waiting for the loads
+                break;
+            }
+
+            int x = chunkMinX + index % chunkWidth, z = chunkMinZ + index / chunkWidth;
+            if (world.isChunkLoaded(x, z)) {
+                index++;
+                process(world.getChunkAt(x, z));
+            } else if (GET_CHUNK_AT_ASYNC == null) {
+                index++;
+                skip();
+            } else if (pending < MAX_PENDING_LOADS) {
+                index++;
+                load(x, z);
+            } else {
+                // Waiting for the loads
+                break;
+            }
+        } while (System.nanoTime() < deadline);
+
+        // Report
+        if (System.nanoTime() - lastProgress >= progressInterval) {
+            lastProgress = System.nanoTime();
+            plugin.getMessenger().send(sender, "region.progress", this::resolve);
+        }
+    }
+
+    /**
+     * Loads the given chunk asynchronously. Once loaded, it is queued for processing on the main thread.
+     *
+     * @param x the chunk X coordinate
+     * @param z the chunk Z coordinate
+     */
+    @SuppressWarnings("unchecked")
+    private void load(int x, int z) {
+        CompletableFuture<Chunk> future;
+        try {
+            future = (CompletableFuture<Chunk>) GET_CHUNK_AT_ASYNC.invoke(world, x, z);
+        } catch (Throwable ex) {
+            plugin.getLogger().log(Level.WARNING, "Failed to load a chunk asynchronously!", ex);
+            skip();
+            return;
+        }
+
+        pending++;
+        future.whenComplete((chunk, ex) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            pending--;
+            if (chunk != null)
+                loaded.add(chunk);
+            else
+                skip();
+        }));
+    }
+
+    /**
+     * Repairs the items in all block inventories within the region in the given chunk.
+     *
+     * @param chunk the chunk
+     */
+    private void process(@NotNull Chunk chunk) {
+        // Unloaded meanwhile
+        if (!chunk.isLoaded()) {
+            skip();
+            return;
+        }
+
+        for (BlockState state : chunk.getTileEntities()) {
+            // Not a container or outside the region
+            if (!(state instanceof InventoryHolder) || !contains(state))
+                continue;
+
+            // Only this half of a double chest, so each half is processed once
+            Inventory inventory = state instanceof Chest ? ((Chest) state).getBlockInventory() : ((InventoryHolder) state).getInventory();
+            for (int slot = 0; slot < inventory.getSize(); slot++) {
+                ItemStack item = inventory.getItem(slot);
+                if (item == null)
+                    continue;
+
+                // Set back if repaired
+                int repaired = result.getRepaired();
+                repairer.repair(item, result);
+                if (result.getRepaired() != repaired)
+                    inventory.setItem(slot, item);
+            }
+            containers++;
+        }
+        processed++;
+    }
+
+    /**
+     * Skips a chunk which could not be loaded.
+     */
+    private void skip() {
+        skipped++;
+        processed++;
+    }
+
+    /**
+     * Returns whether the given block is within the region.
+     *
+     * @param state the block
+     * @return whether the block is within the region
+     */
+    private boolean contains(@NotNull BlockState state) {
+        return state.getX() >= minX && state.getX() <= maxX && state.getY() >= minY && state.getY() <= maxY && state.getZ() >= minZ && state.getZ() <= maxZ;
+    }
+
+    /**
+     * Finishes the job, recording the result and sending it to the sender.
+     */
+    private void finish() {
+        cancel();
+        plugin.getStats().record(result);
+        plugin.getMessenger().send(sender, "region.finished", this::resolve);
+    }
+
+    /**
+     * Resolves the progress placeholders.
+     *
+     * @param placeholder the placeholder
+     * @param builder     the builder to append to
+     */
+    private void resolve(@NotNull Placeholder placeholder, @NotNull StringBuilder builder) {
+        switch (placeholder) {
+            case CHUNKS:
+                builder.append(processed);
+                return;
+            case TOTAL:
+                builder.append(total);
+                return;
+            case SKIPPED:
+                builder.append(skipped);
+                return;
+            case CONTAINERS:
+                builder.append(containers);
+                return;
+            case REPAIRED:
+                builder.append(result.getRepaired());
+                return;
+            case BLOCKED:
+                builder.append(result.getBlocked());
+                return;
+            case WORLD:
+                builder.append(world.getName());
+                return;
+            default:
+                builder.append(placeholder.getToken());
+        }
+    }
+
+    /**
+     * Returns the amount of chunks spanned by the given region.
+     *
+     * @param minX the min X coordinate
+     * @param minZ the min Z coordinate
+     * @param maxX the max X coordinate
+     * @param maxZ the max Z coordinate
+     * @return the amount of chunks
+     */
+    public static int getChunks(int minX, int minZ, int maxX, int maxZ) {
+        long chunks = (long) ((maxX >> 4) - (minX >> 4) + 1) * ((maxZ >> 4) - (minZ >> 4) + 1);
+        return (int) Math.min(Integer.MAX_VALUE, chunks);
+    }
+
+    /**
+     * Finds the handle of <code>World#getChunkAtAsync(int, int)</code>.
+     *
+     * @return the handle, or <code>null</code> if unsupported
+     */
+    @Nullable
+    private static MethodHandle findChunkLoader() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(World.class, "getChunkAtAsync", MethodType.methodType(CompletableFuture.class, int.class, int.class));
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A mutable and reusable accumulator of repair results, written into directly by the {@link Repairer}.
+ * <p>
+ * Unlike {@link RepairResult}, recording an item does not allocate. Call {@link #toResult()} to obtain the immutable
+ * summary.
+ */
+public class RepairAccumulator {
+
+    private int repaired, intact, blocked, unsupported, failed, evaluations;
+
+    /**
+     * Records a repaired item.
+     */
+    public void recordRepaired() {
+        repaired++;
+    }
+
+    /**
+     * Records an item which did not need a repair (an empty slot, an item which cannot be damaged or is not damaged).
+     */
+    public void recordIntact() {
+        intact++;
+    }
+
+    /**
+     * Records the given amount of items which did not need a repair.
+     *
+     * @param amount the amount of items
+     */
+    public void recordIntact(int amount) {
+        intact += amount;
+    }
+
+    /**
+     * Records a damaged item which was not repaired because it is blocked.
+     */
+    public void recordBlocked() {
+        blocked++;
+    }
+
+    /**
+     * Records a slot unsupported by the server.
+     */
+    public void recordUnsupported() {
+        unsupported++;
+    }
+
+    /**
+     * Records an item which failed to be repaired.
+     */
+    public void recordFailed() {
+        failed++;
+    }
+
+    /**
+     * Records the given amount of blocked item rule evaluations.
+     *
+     * @param evaluations the amount of evaluations
+     */
+    public void recordEvaluations(int evaluations) {
+        this.evaluations += evaluations;
+    }
+
+    /**
+     * Adds all amounts recorded by the given accumulator to this one.
+     *
+     * @param that the accumulator to add
+     */
+    public void add(@NotNull RepairAccumulator that) {
+        this.repaired += that.repaired;
+        this.intact += that.intact;
+        this.blocked += that.blocked;
+        this.unsupported += that.unsupported;
+        this.failed += that.failed;
+        this.evaluations += that.evaluations;
+    }
+
+    /**
+     * Adds the given amounts of items to this accumulator, e.g. as reported by another server.
+     *
+     * @param repaired    the amount of items repaired
+     * @param intact      the amount of items which did not need a repair
+     * @param blocked     the amount of blocked items
+     * @param unsupported the amount of slots unsupported by the server
+     * @param failed      the amount of items which failed to be repaired
+     */
+    public void add(int repaired, int intact, int blocked, int unsupported, int failed) {
+        if (repaired < 0 || intact < 0 || blocked < 0 || unsupported < 0 || failed < 0)
+            throw new IllegalArgumentException("Item counts cannot be less than 0!");
+
+        this.repaired += repaired;
+        this.intact += intact;
+        this.blocked += blocked;
+        this.unsupported += unsupported;
+        this.failed += failed;
+    }
+
+    /**
+     * Resets all the recorded amounts, so the accumulator can be reused.
+     */
+    public void reset() {
+        repaired = intact = blocked = unsupported = failed = evaluations = 0;
+    }
+
+    /**
+     * Returns the status derived from the recorded amounts, as defined by {@link RepairResult#getStatus()}.
+     *
+     * @return the status
+     */
+    @NotNull
+    public RepairResult.Status getStatus() {
+        return RepairResult.statusOf(repaired, intact, blocked, unsupported, failed);
+    }
+
+    /**
+     * Returns the amount of items repaired.
+     *
+     * @return the amount of items repaired
+     */
+    public int getRepaired() {
+        return repaired;
+    }
+
+    /**
+     * Returns the amount of items which did not need a repair.
+     *
+     * @return the amount of items which did not need a repair
+     */
+    public int getIntact() {
+        return intact;
+    }
+
+    /**
+     * Returns the amount of blocked items.
+     *
+     * @return the amount of blocked items
+     */
+    public int getBlocked() {
+        return blocked;
+    }
+
+    /**
+     * Returns the amount of slots unsupported by the server.
+     *
+     * @return the amount of unsupported slots
+     */
+    public int getUnsupported() {
+        return unsupported;
+    }
+
+    /**
+     * Returns the amount of items which failed to be repaired.
+     *
+     * @return the amount of items which failed to be repaired
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the amount of blocked item rule evaluations.
+     *
+     * @return the amount of rule evaluations
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Returns an immutable summary of the recorded amounts.
+     *
+     * @return the summary
+     */
+    @NotNull
+    public RepairResult toResult() {
+        return new RepairResult(repaired, intact, blocked, unsupported, failed);
+    }
+
+}
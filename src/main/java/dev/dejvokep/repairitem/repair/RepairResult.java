@@ -17,7 +17,6 @@ package dev.dejvokep.repairitem.repair;
 
 import dev.dejvokep.repairitem.command.function.CommandFunction;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.util.function.Function;
 
@@ -70,56 +69,52 @@ public class RepairResult {
     }
 
     private final Status status;
-    private final int repaired;
+    private final int repaired, intact, blocked, unsupported, failed;
 
     /**
-     * Initializes the result with the given status and amount of items repaired.
+     * Initializes the result with the given amounts of items. The status is derived from the amounts, as defined by
+     * {@link #getStatus()}.
      *
-     * @param status   the status
-     * @param repaired the amount of items repaired, must not be negative
+     * @param repaired    the amount of items repaired, must not be negative
+     * @param intact      the amount of items which did not need a repair, must not be negative
+     * @param blocked     the amount of blocked items, must not be negative
+     * @param unsupported the amount of slots unsupported by the server, must not be negative
+     * @param failed      the amount of items which failed to be repaired, must not be negative
      */
-    private RepairResult(@Nullable Status status, int repaired) {
-        if (repaired < 0)
-            throw new IllegalArgumentException("Repaired items count cannot be less than 0!");
+    RepairResult(int repaired, int intact, int blocked, int unsupported, int failed) {
+        if (repaired < 0 || intact < 0 || blocked < 0 || unsupported < 0 || failed < 0)
+            throw new IllegalArgumentException("Item counts cannot be less than 0!");
 
-        this.status = status;
+        this.status = statusOf(repaired, intact, blocked, unsupported, failed);
         this.repaired = repaired;
+        this.intact = intact;
+        this.blocked = blocked;
+        this.unsupported = unsupported;
+        this.failed = failed;
     }
 
     /**
      * Merges this with the given result.
      * <p>
-     * The status of the returned result will be:
-     * <ul>
-     * <li><code>this.result</code> if <code>this.result == that.result</code></li>
-     * <li><code>that.result</code> if <code>this</code> is an empty result</li>
-     * <li>{@link Status#SUCCESS} if <code>this.result != that.result</code> and <code>this.repaired + that.repaired > 0</code></li>
-     * <li>{@link Status#ERROR_NOT_REPAIRED} if <code>this.result != that.result</code> and <code>this.repaired + that.repaired == 0</code></li>
-     * </ul>
-     * The amount of repaired items will be the sum of amounts of repaired items of the both results.
-     * <p>
-     * Trying to merge with an empty result will result in an {@link IllegalArgumentException}.
+     * The amounts of items of the returned result will be the sums of the amounts of the both results, the status is
+     * derived from them as defined by {@link #getStatus()}.
      *
      * @param that the result to merge with
      * @return the merged result
      */
     @NotNull
     public RepairResult merge(@NotNull RepairResult that) {
-        if (that.status == null)
-            throw new IllegalArgumentException("Cannot merge with an empty result!");
-
-        int repaired = this.repaired + that.repaired;
-        return new RepairResult(this.status == null ? that.status : this.status == that.status ? this.status : repaired > 0 ? Status.SUCCESS : Status.ERROR_NOT_REPAIRED, repaired);
+        return new RepairResult(this.repaired + that.repaired, this.intact + that.intact, this.blocked + that.blocked, this.unsupported + that.unsupported, this.failed + that.failed);
     }
 
     /**
-     * Initializes an empty result ({@link #getStatus()} will be <code>null</code>).
+     * Initializes an empty result (with no items).
      *
      * @return an empty result
      */
     @NotNull
     public static RepairResult empty() {
-        return new RepairResult(null, 0);
+        return new RepairResult(0, 0, 0, 0, 0);
     }
 
     /**
@@ -129,28 +124,46 @@ public class RepairResult {
      */
     @NotNull
     public static RepairResult success() {
-        return new RepairResult(Status.SUCCESS, 1);
+        return new RepairResult(1, 0, 0, 0, 0);
     }
 
     /**
      * Initializes an error result (with no repaired item).
+     * <p>
+     * {@link Status#ERROR_NOT_REPAIRED} is recorded as one intact item, {@link Status#ERROR_UNSUPPORTED} as one
+     * unsupported slot and {@link Status#ERROR_UNKNOWN} as one failed item.
      *
      * @param status the status to initialize with
      * @return the error result
      */
     @NotNull
     public static RepairResult error(@NotNull Status status) {
-        return new RepairResult(status, 0);
+        switch (status) {
+            case ERROR_UNSUPPORTED:
+                return new RepairResult(0, 0, 0, 1, 0);
+            case ERROR_UNKNOWN:
+                return new RepairResult(0, 0, 0, 0, 1);
+            case ERROR_NOT_REPAIRED:
+                return new RepairResult(0, 1, 0, 0, 0);
+        }
+
+        throw new IllegalArgumentException("The passed status is not an error status!");
     }
 
     /**
-     * Returns the status of the operation, or {@link Status#SUCCESS} if this result is empty.
+     * Returns the status of the operation:
+     * <ul>
+     * <li>{@link Status#SUCCESS} if at least one item was repaired,</li>
+     * <li>{@link Status#ERROR_UNKNOWN} if all the items failed to be repaired,</li>
+     * <li>{@link Status#ERROR_UNSUPPORTED} if all the slots were unsupported by the server,</li>
+     * <li>{@link Status#ERROR_NOT_REPAIRED} otherwise.</li>
+     * </ul>
      *
-     * @return the status of the operation, or {@link Status#SUCCESS} if this result is empty
+     * @return the status of the operation
      */
     @NotNull
     public Status getStatus() {
-        return status == null ? Status.SUCCESS : status;
+        return status;
     }
 
     /**
@@ -161,4 +174,62 @@ public class RepairResult {
     public int getRepaired() {
         return repaired;
     }
+
+    /**
+     * Returns the amount of items which did not need a repair (empty slots, items which cannot be damaged or are not
+     * damaged).
+     *
+     * @return the amount of items which did not need a repair
+     */
+    public int getIntact() {
+        return intact;
+    }
+
+    /**
+     * Returns the amount of damaged items which were not repaired because they are blocked.
+     *
+     * @return the amount of blocked items
+     */
+    public int getBlocked() {
+        return blocked;
+    }
+
+    /**
+     * Returns the amount of slots unsupported by the server.
+     *
+     * @return the amount of unsupported slots
+     */
+    public int getUnsupported() {
+        return unsupported;
+    }
+
+    /**
+     * Returns the amount of items which failed to be repaired.
+     *
+     * @return the amount of items which failed to be repaired
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Derives the status from the given amounts of items, as defined by {@link #getStatus()}.
+     *
+     * @param repaired    the amount of items repaired
+     * @param intact      the amount of items which did not need a repair
+     * @param blocked     the amount of blocked items
+     * @param unsupported the amount of slots unsupported by the server
+     * @param failed      the amount of items which failed to be repaired
+     * @return the status
+     */
+    @NotNull
+    static Status statusOf(int repaired, int intact, int blocked, int unsupported, int failed) {
+        if (repaired > 0)
+            return Status.SUCCESS;
+        if (failed > 0 && intact + blocked + unsupported == 0)
+            return Status.ERROR_UNKNOWN;
+        if (unsupported > 0 && intact + blocked + failed == 0)
+            return Status.ERROR_UNSUPPORTED;
+        return Status.ERROR_NOT_REPAIRED;
+    }
 }
@@ -17,22 +17,26 @@ package dev.dejvokep.repairitem.repair;
 
 import dev.dejvokep.repairitem.RepairItem;
 import dev.dejvokep.repairitem.command.function.CommandFunction;
-import dev.dejvokep.repairitem.utils.IntRange;
+import dev.dejvokep.repairitem.config.Settings;
+import dev.dejvokep.repairitem.stats.CommandTimings;
 import dev.dejvokep.repairitem.utils.VersionConstants;
 import org.bukkit.Material;
+import org.bukkit.block.BlockState;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.logging.Level;
+import java.util.function.Supplier;
 
 /**
  * Class handling all repair operations.
@@ -40,59 +44,67 @@ import java.util.logging.Level;
 public class Repairer {
 
     /**
-     * Range of the inventory slots.
+     * Path to the capacity of the verdict cache.
      */
-    private static final IntRange INVENTORY_SLOTS = new IntRange(0, 36);
+    public static final String PATH_VERDICT_CACHE_SIZE = "blocked-items-cache.size";
+
+    private final Supplier<BlockedItemIndex> blockedItemIndex;
+    private final DamagedSlotIndex damagedSlots;
+    private final VerdictCache verdicts;
+    private final Supplier<NestedRepair> nestedRepairs;
+    private final DurabilityAccessor durability = DurabilityAccessor.create();
+    private final Map<CommandFunction, SlotPlan> plans = SlotPlan.compileAll();
 
     /**
-     * Range of the armor slots.
+     * Initializes the repairer. Blocked items and nested repair limits are read from the current
+     * {@link RepairItem#getSettings() settings}.
+     *
+     * @param plugin the plugin instance
      */
-    private static final IntRange ARMOR_SLOTS = new IntRange(0, 4);
+    public Repairer(@NotNull RepairItem plugin) {
+        this(() -> plugin.getSettings().getBlockedItems(), plugin.getDamagedSlotIndex(), VerdictCache.create(plugin.getConfiguration().getInt(PATH_VERDICT_CACHE_SIZE, 1024)), () -> {
+            Settings settings = plugin.getSettings();
+            return NestedRepair.create(settings.getNestedRepairDepth(), settings.getNestedRepairMaxItems());
+        });
+    }
 
     /**
-     * Range of the hotbar slots.
+     * Initializes the repairer. Blocked items are read from the given supplier, once per repair.
+     *
+     * @param blockedItems supplier of the current blocked items
      */
-    private static final IntRange HOTBAR_SLOTS = new IntRange(0, 9);
-
-    private final RepairItem plugin;
-    private final Set<BlockedItem> blockedItems = new HashSet<>();
-
-    // Reflection components
-    private Class<?> damageableClass;
-    private Method setDurabilityMethod, getDurabilityMethod;
+    public Repairer(@NotNull Supplier<BlockedItemIndex> blockedItems) {
+        this(blockedItems, null, null);
+    }
 
     /**
-     * Initializes and reloads the repairer.
+     * Initializes the repairer. Blocked items are read from the given supplier, once per repair. If provided, the
+     * given index is used by repairs of functions to visit only the slots which might hold a damaged item and the given
+     * cache to serve blocked item verdicts.
      *
-     * @param plugin the plugin instance
+     * @param blockedItems supplier of the current blocked items
+     * @param damagedSlots the damaged slot index, or <code>null</code> to always visit all slots
+     * @param verdicts     the verdict cache, or <code>null</code> to always evaluate the blocked items
      */
-    public Repairer(@NotNull RepairItem plugin) {
-        this.plugin = plugin;
-
-        // Initialize reflection components
-        try {
-            damageableClass = getDamageableClass();
-            setDurabilityMethod = getSetDurabilityMethod();
-            getDurabilityMethod = getGetDurabilityMethod();
-        } catch (ReflectiveOperationException ex) {
-            plugin.getLogger().log(Level.SEVERE, "Some of the resources to run the plugin could not be loaded; try restarting the server. If the problem persists, please report it.", ex);
-        }
-
-        reload();
+    public Repairer(@NotNull Supplier<BlockedItemIndex> blockedItems, @Nullable DamagedSlotIndex damagedSlots, @Nullable VerdictCache verdicts) {
+        this(blockedItems, damagedSlots, verdicts, () -> null);
     }
 
     /**
-     * Reloads the blocked items.
+     * Initializes the repairer as documented at
+     * {@link #Repairer(Supplier, DamagedSlotIndex, VerdictCache)}. The given supplier is called once per repair for
+     * limits of repairing items nested in containers.
+     *
+     * @param blockedItems  supplier of the current blocked items
+     * @param damagedSlots  the damaged slot index, or <code>null</code> to always visit all slots
+     * @param verdicts      the verdict cache, or <code>null</code> to always evaluate the blocked items
+     * @param nestedRepairs supplier of new nested repair limits, supplying <code>null</code> if disabled
      */
-    public void reload() {
-        // Clear
-        blockedItems.clear();
-
-        // Reset the set
-        plugin.getConfiguration().getOptionalMapList("blocked-items").ifPresent(sections -> {
-            for (Map<?, ?> map : sections)
-                blockedItems.add(new BlockedItem(plugin, map));
-        });
+    public Repairer(@NotNull Supplier<BlockedItemIndex> blockedItems, @Nullable DamagedSlotIndex damagedSlots, @Nullable VerdictCache verdicts, @NotNull Supplier<NestedRepair> nestedRepairs) {
+        this.blockedItemIndex = blockedItems;
+        this.damagedSlots = damagedSlots;
+        this.verdicts = verdicts;
+        this.nestedRepairs = nestedRepairs;
     }
 
     /**
@@ -103,124 +115,202 @@ public class Repairer {
      * @param player   player whose items to repair
      * @param function function type defining the content to repair
      * @return the result
+     * @see #repair(Player, CommandFunction, RepairAccumulator)
      */
     @NotNull
     public RepairResult repair(@NotNull Player player, @NotNull CommandFunction function) {
-        switch (function) {
-            case ALL:
-                return repairAll(player);
-            case INVENTORY:
-                return repairInventory(player);
-            case ARMOR:
-                return repairArmor(player);
-            case HOTBAR:
-                return repairHotbar(player);
-            case BOTH_HANDS:
-                return repairBothHands(player);
-            case MAIN_HAND:
-                return repairHand(player, true);
-            case OFF_HAND:
-                return repairHand(player, false);
-        }
-
-        throw new IllegalArgumentException("The passed function is not a repair function!");
+        RepairAccumulator accumulator = new RepairAccumulator();
+        repair(player, function, accumulator);
+        return accumulator.toResult();
     }
 
     /**
-     * Repairs all items (inventory and armor contents).
+     * Repairs inventory items in accordance with the given function, recording the results into the given
+     * accumulator.
+     * <p>
+     * The function's {@link SlotPlan slot plan} is run in one pass over the inventory contents, visiting each slot
+     * exactly once. If the {@link DamagedSlotIndex} is in use and {@link DamagedSlotIndex#isTrusted(Player) trusted},
+     * only the slots indexed as possibly damaged are visited, otherwise, all the slots are scanned and the index is
+     * rebuilt. If the given function is not a repair function, an {@link IllegalArgumentException} will be thrown.
      *
-     * @param player the player whose items to repair
-     * @return the result
+     * @param player      player whose items to repair
+     * @param function    function type defining the content to repair
+     * @param accumulator the accumulator to record the results into
      */
-    @NotNull
-    public RepairResult repairAll(@NotNull Player player) {
-        return repairInventory(player).merge(repairArmor(player));
+    public void repair(@NotNull Player player, @NotNull CommandFunction function, @NotNull RepairAccumulator accumulator) {
+        repair(player, function, accumulator, null);
     }
 
     /**
-     * Repairs all items, excluding the armor.
+     * Repairs inventory items as documented at {@link #repair(Player, CommandFunction, RepairAccumulator)}. If
+     * provided, the time spent is added to the given timings, split into the item phases.
      *
-     * @param player the player whose items to repair
-     * @return the result
+     * @param player      player whose items to repair
+     * @param function    function type defining the content to repair
+     * @param accumulator the accumulator to record the results into
+     * @param timings     timings to add to, or <code>null</code> if not timed
      */
-    @NotNull
-    public RepairResult repairInventory(@NotNull Player player) {
-        PlayerInventory inventory = player.getInventory();
+    public void repair(@NotNull Player player, @NotNull CommandFunction function, @NotNull RepairAccumulator accumulator, @Nullable CommandTimings timings) {
+        long start = timings == null ? 0 : System.nanoTime(), nested = timings == null ? 0 : getItemPhases(timings);
+        SlotPlan plan = getPlan(function);
+        if (!plan.isSupported()) {
+            accumulator.recordUnsupported();
+            return;
+        }
 
-        // Repair both hands
-        RepairResult result = repairBothHands(player);
-        // Repair the rest
-        for (int slot : INVENTORY_SLOTS.getContents())
-            result = result.merge(repair(inventory.getItem(slot)));
+        // Ender chest (not indexed)
+        if (plan.isEnderChest()) {
+            repair(player.getEnderChest(), plan.getSlots(0), accumulator, nestedRepairs.get(), timings);
+        } else {
+            PlayerInventory inventory = player.getInventory();
+            repair(player, inventory, plan.getSlots(inventory.getHeldItemSlot()), accumulator, true, timings);
+        }
 
-        return result;
+        // Scanning is what remains after matching and writing
+        if (timings != null)
+            timings.add(CommandTimings.Phase.SCAN, System.nanoTime() - start - (getItemPhases(timings) - nested));
     }
 
     /**
-     * Repairs the armor.
+     * Repairs items in the given raw slots of the player's inventory, recording the results into the given
+     * accumulator. Each item is repaired as by {@link #repair(ItemStack, RepairAccumulator)}. Intended for automatic
+     * repairs of the slots known to be damaged; all the given slots are visited and the {@link DamagedSlotIndex}, if
+     * in use, is only updated afterwards.
+     * <p>
+     * Slots are represented by a bitset, where bit <code>n</code> stands for the raw slot <code>n</code> as defined by
+     * {@link SlotPlan}.
      *
-     * @param player the player whose items to repair
-     * @return the result
+     * @param player      player whose items to repair
+     * @param slots       the slots to repair
+     * @param accumulator the accumulator to record the results into
      */
-    @NotNull
-    public RepairResult repairArmor(@NotNull Player player) {
-        ItemStack[] armor = player.getInventory().getArmorContents();
-
-        // Repair
-        RepairResult result = RepairResult.empty();
-        for (int slot : ARMOR_SLOTS.getContents())
-            result = result.merge(repair(armor[slot]));
+    public void repair(@NotNull Player player, long slots, @NotNull RepairAccumulator accumulator) {
+        // The off-hand does not exist
+        if (VersionConstants.OFF_HAND_UNSUPPORTED)
+            slots &= ~(1L << SlotPlan.OFF_HAND_SLOT);
 
-        return result;
+        repair(player, player.getInventory(), slots, accumulator, false, null);
     }
 
     /**
-     * Repairs the hotbar items, including both hands.
+     * Repairs items in the given raw slots of the player's inventory. If the {@link DamagedSlotIndex} is in use, it is
+     * updated afterwards and, if indexed, only the slots which might hold a damaged item or a container with nested
+     * items are visited (the others are recorded as intact right away).
      *
-     * @param player the player whose items to repair
-     * @return the result
+     * @param player      the player
+     * @param inventory   inventory of the player
+     * @param slots       the slots to repair
+     * @param accumulator the accumulator to record the results into
+     * @param indexed     whether to visit only the slots indexed as possibly damaged
+     * @param timings     timings to add to, or <code>null</code> if not timed
      */
-    @NotNull
-    public RepairResult repairHotbar(@NotNull Player player) {
-        PlayerInventory inventory = player.getInventory();
-
-        // Repair both hands
-        RepairResult result = repairBothHands(player);
-        // Repair the rest
-        for (int slot : HOTBAR_SLOTS.getContents())
-            result = result.merge(repair(inventory.getItem(slot)));
+    private void repair(@NotNull Player player, @NotNull PlayerInventory inventory, long slots, @NotNull RepairAccumulator accumulator, boolean indexed, @Nullable CommandTimings timings) {
+        NestedRepair nested = nestedRepairs.get();
+
+        // Visit all slots
+        if (damagedSlots == null || !indexed) {
+            long damaged = repair(inventory, slots, accumulator, nested, timings);
+            if (damagedSlots != null)
+                damagedSlots.update(player, slots, damaged);
+            return;
+        }
 
-        return result;
+        // Visit only the slots which might be damaged, or hold containers (which are not indexed)
+        long damaged = getDamagedSlots(player, inventory);
+        if (nested != null)
+            damaged |= getContainerSlots(inventory.getContents(), slots);
+        accumulator.recordIntact(Long.bitCount(slots & ~damaged));
+        slots &= damaged;
+        damagedSlots.update(player, slots, repair(inventory, slots, accumulator, nested, timings));
     }
 
     /**
-     * Repairs both hands (off-hand only if supported).
+     * Repairs items in the given raw slots of the given inventory. For the player inventory, the slots are as defined
+     * by {@link SlotPlan}.
      *
-     * @param player the player whose items to repair
-     * @return the result
+     * @param inventory   the inventory
+     * @param slots       the slots to repair
+     * @param accumulator the accumulator to record the results into
+     * @param nested      limits of the nested repair, or <code>null</code> if disabled
+     * @param timings     timings to add to, or <code>null</code> if not timed
+     * @return the slots holding a damaged item which was not repaired (the blocked items)
      */
-    @NotNull
-    public RepairResult repairBothHands(@NotNull Player player) {
-        return repairHand(player, true).merge(repairHand(player, false));
+    private long repair(@NotNull Inventory inventory, long slots, @NotNull RepairAccumulator accumulator, @Nullable NestedRepair nested, @Nullable CommandTimings timings) {
+        ItemStack[] contents = inventory.getContents(), armor = null;
+        BlockedItemIndex blockedItems = blockedItemIndex.get();
+        long damaged = 0;
+
+        // Repair
+        for (; slots != 0; slots &= slots - 1) {
+            int slot = Long.numberOfTrailingZeros(slots);
+
+            int blocked = accumulator.getBlocked();
+
+            // Contents of versions older than 1.9 do not include the armor
+            if (slot >= contents.length) {
+                if (armor == null)
+                    armor = ((PlayerInventory) inventory).getArmorContents();
+                repair(armor[slot - SlotPlan.ARMOR_OFFSET], accumulator, blockedItems, nested, 1, timings);
+            } else {
+                repair(contents[slot], accumulator, blockedItems, nested, 1, timings);
+            }
+
+            // Still damaged
+            if (accumulator.getBlocked() != blocked)
+                damaged |= 1L << slot;
+        }
+
+        return damaged;
     }
 
     /**
-     * Repairs item in a hand.
+     * Returns the slots of the player's inventory which might hold a damaged item, as indexed by the
+     * {@link DamagedSlotIndex}. If the index cannot be trusted, it is rebuilt by a full scan first.
      *
-     * @param player the player whose items to repair
-     * @param main   if to repair item in the main-hand (<code>false</code> for off-hand)
-     * @return the result
+     * @param player    the player
+     * @param inventory inventory of the player
+     * @return the slots which might hold a damaged item
      */
-    @SuppressWarnings("deprecation")
-    @NotNull
-    public RepairResult repairHand(@NotNull Player player, boolean main) {
-        if (main)
-            return repair(VersionConstants.OFF_HAND_UNSUPPORTED ? player.getInventory().getItemInHand() : player.getInventory().getItemInMainHand());
+    private long getDamagedSlots(@NotNull Player player, @NotNull PlayerInventory inventory) {
+        if (damagedSlots.isTrusted(player))
+            return damagedSlots.get(player);
+
+        // Full scan
+        ItemStack[] contents = inventory.getContents(), armor = inventory.getArmorContents();
+        long damaged = 0;
+        for (int slot = 0; slot < SlotPlan.SIZE; slot++) {
+            ItemStack item;
+            // Contents of versions older than 1.9 do not include the armor, nor is there the off-hand
+            if (slot < contents.length)
+                item = contents[slot];
+            else if (slot >= SlotPlan.ARMOR_OFFSET && slot < SlotPlan.ARMOR_OFFSET + armor.length)
+                item = armor[slot - SlotPlan.ARMOR_OFFSET];
+            else
+                continue;
+
+            if (canBeDamaged(item) && durability.mayBeDamaged(item) && durability.getDamage(new ItemContext(item)) != 0)
+                damaged |= 1L << slot;
+        }
 
-        if (VersionConstants.OFF_HAND_UNSUPPORTED)
-            return RepairResult.error(RepairResult.Status.ERROR_UNSUPPORTED);
+        damagedSlots.rebuild(player, damaged);
+        return damaged;
+    }
 
-        return repair(player.getInventory().getItemInOffHand());
+    /**
+     * Returns the given slots which hold a container item, as defined by {@link NestedRepair#isContainer(Material)}.
+     *
+     * @param contents contents of the inventory
+     * @param slots    the slots to check
+     * @return the slots holding a container
+     */
+    private static long getContainerSlots(@NotNull ItemStack[] contents, long slots) {
+        long containers = 0;
+        for (; slots != 0; slots &= slots - 1) {
+            int slot = Long.numberOfTrailingZeros(slots);
+            if (slot < contents.length && contents[slot] != null && NestedRepair.isContainer(contents[slot].getType()))
+                containers |= 1L << slot;
+        }
+        return containers;
     }
 
     /**
@@ -228,83 +318,351 @@ public class Repairer {
      *
      * @param itemStack the item to repair
      * @return the result
+     * @see #repair(ItemStack, RepairAccumulator)
      */
     @NotNull
     public RepairResult repair(@Nullable ItemStack itemStack) {
-        // Reflection components not initialized
-        if (getDurabilityMethod == null || setDurabilityMethod == null)
-            return RepairResult.error(RepairResult.Status.ERROR_UNKNOWN);
+        RepairAccumulator accumulator = new RepairAccumulator();
+        repair(itemStack, accumulator);
+        return accumulator.toResult();
+    }
+
+    /**
+     * Repairs the given item, recording the result into the given accumulator.
+     * <p>
+     * The item's meta is decoded at most once, shared between the durability check and all blocked item comparisons,
+     * and written back only if the item was actually repaired. If nested repair is enabled, items nested in the item
+     * (if a container) are repaired as well.
+     *
+     * @param itemStack   the item to repair
+     * @param accumulator the accumulator to record the result into
+     */
+    public void repair(@Nullable ItemStack itemStack, @NotNull RepairAccumulator accumulator) {
+        repair(itemStack, accumulator, blockedItemIndex.get(), nestedRepairs.get(), 1, null);
+    }
+
+    /**
+     * Repairs the given item, recording the result into the given accumulator. If the item is a container which
+     * should be opened, repairs the nested items as well.
+     *
+     * @param itemStack    the item to repair
+     * @param accumulator  the accumulator to record the result into
+     * @param blockedItems the blocked items to check against
+     * @param nested       limits of the nested repair, or <code>null</code> if disabled
+     * @param depth        depth of the item's contents
+     * @param timings      timings to add to, or <code>null</code> if not timed
+     */
+    private void repair(@Nullable ItemStack itemStack, @NotNull RepairAccumulator accumulator, @NotNull BlockedItemIndex blockedItems, @Nullable NestedRepair nested, int depth, @Nullable CommandTimings timings) {
         // Cannot be repaired
-        if (itemStack == null || itemStack.getType() == null || itemStack.getType() == Material.AIR || itemStack.getType().getMaxDurability() == 0)
-            return RepairResult.error(RepairResult.Status.ERROR_NOT_REPAIRED);
+        if (!canBeDamaged(itemStack)) {
+            accumulator.recordIntact();
+            // Might hold damaged items
+            if (nested != null && nested.canOpen(itemStack, depth))
+                repairContents(itemStack, accumulator, blockedItems, nested, depth, timings);
+            return;
+        }
+
+        ItemContext context = new ItemContext(itemStack);
+        // Not damaged
+        if (durability.getDamage(context) == 0) {
+            accumulator.recordIntact();
+            return;
+        }
         // Check blocked items
-        for (BlockedItem blocked : blockedItems)
-            if (blocked.compare(itemStack))
-                return RepairResult.error(RepairResult.Status.ERROR_NOT_REPAIRED);
-
-        try {
-            // Use ItemStack methods for versions < 1.13, damageable interface methods otherwise
-            if (VersionConstants.LEGACY_DURABILITY) {
-                if (((Short) getDurabilityMethod.invoke(itemStack)) == 0)
-                    return RepairResult.error(RepairResult.Status.ERROR_NOT_REPAIRED);
-                setDurabilityMethod.invoke(itemStack, (short) 0);
-            } else {
-                if (damageableClass == null)
-                    return RepairResult.error(RepairResult.Status.ERROR_UNKNOWN);
-
-                // Cast
-                Object damageable = damageableClass.cast(itemStack.getItemMeta());
-                // Repair if damaged
-                if (((Integer) getDurabilityMethod.invoke(damageable)) == 0)
-                    return RepairResult.error(RepairResult.Status.ERROR_NOT_REPAIRED);
-                setDurabilityMethod.invoke(damageable, 0);
-
-                // Set back
-                itemStack.setItemMeta((ItemMeta) damageable);
+        long start = timings == null ? 0 : System.nanoTime();
+        boolean blocked = isBlocked(blockedItems, context);
+        accumulator.recordEvaluations(context.getEvaluations());
+        if (timings != null)
+            timings.since(CommandTimings.Phase.MATCH, start);
+        if (blocked) {
+            accumulator.recordBlocked();
+            return;
+        }
+
+        // Repair and set back
+        if (timings != null)
+            start = System.nanoTime();
+        durability.setDamage(context, 0);
+        context.writeBack();
+        if (timings != null)
+            timings.since(CommandTimings.Phase.WRITE, start);
+        accumulator.recordRepaired();
+    }
+
+    /**
+     * Repairs items nested in the given container (a shulker box or a bundle), recording the results into the given
+     * accumulator. The contents are decoded once and written back only if any nested item was repaired.
+     *
+     * @param container    the container
+     * @param accumulator  the accumulator to record the results into
+     * @param blockedItems the blocked items to check against
+     * @param nested       limits of the nested repair
+     * @param depth        depth of the container's contents
+     * @param timings      timings to add to, or <code>null</code> if not timed
+     */
+    private void repairContents(@NotNull ItemStack container, @NotNull RepairAccumulator accumulator, @NotNull BlockedItemIndex blockedItems, @NotNull NestedRepair nested, int depth, @Nullable CommandTimings timings) {
+        ItemContext context = new ItemContext(container);
+        ItemMeta meta = context.getMeta();
+        int repaired = accumulator.getRepaired();
+
+        // Bundle
+        if (NestedRepair.isBundle(container.getType())) {
+            if (!(meta instanceof BundleMeta) || !((BundleMeta) meta).hasItems())
+                return;
+
+            BundleMeta bundle = (BundleMeta) meta;
+            List<ItemStack> items = bundle.getItems();
+            repairContents(items, accumulator, blockedItems, nested, depth, timings);
+            if (accumulator.getRepaired() != repaired) {
+                bundle.setItems(items);
+                context.markChanged();
+            }
+        } else {
+            // Shulker box
+            if (!(meta instanceof BlockStateMeta) || !((BlockStateMeta) meta).hasBlockState())
+                return;
+
+            BlockStateMeta stateMeta = (BlockStateMeta) meta;
+            BlockState state = stateMeta.getBlockState();
+            if (!(state instanceof InventoryHolder))
+                return;
+
+            Inventory inventory = ((InventoryHolder) state).getInventory();
+            ItemStack[] contents = inventory.getContents();
+            repairContents(Arrays.asList(contents), accumulator, blockedItems, nested, depth, timings);
+            if (accumulator.getRepaired() != repaired) {
+                inventory.setContents(contents);
+                stateMeta.setBlockState(state);
+                context.markChanged();
             }
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to repair an item! If the problem persists, please report it.", ex);
-            return RepairResult.error(RepairResult.Status.ERROR_UNKNOWN);
         }
 
-        // Success
-        return RepairResult.success();
+        context.writeBack();
     }
 
     /**
-     * Returns reference of the method for setting the durability of an item according to the current server version in
-     * use.
+     * Repairs the given nested items, until the item budget is spent.
      *
-     * @return the reference of the method for setting the durability of an item
-     * @throws NoSuchMethodException if the method could not be found
+     * @param items        the items
+     * @param accumulator  the accumulator to record the results into
+     * @param blockedItems the blocked items to check against
+     * @param nested       limits of the nested repair
+     * @param depth        depth of the items
+     * @param timings      timings to add to, or <code>null</code> if not timed
+     */
+    private void repairContents(@NotNull List<ItemStack> items, @NotNull RepairAccumulator accumulator, @NotNull BlockedItemIndex blockedItems, @NotNull NestedRepair nested, int depth, @Nullable CommandTimings timings) {
+        for (ItemStack item : items) {
+            // Empty slot
+            if (item == null || item.getType() == Material.AIR)
+                continue;
+            // Out of budget
+            if (!nested.take())
+                return;
+
+            repair(item, accumulator, blockedItems, nested, depth + 1, timings);
+        }
+    }
+
+    /**
+     * Captures a snapshot of the items which might need a repair, in accordance with the given function. Must be
+     * called from the main thread.
+     * <p>
+     * Only items which might be damaged are copied, all the others are recorded as intact right away (containers whose
+     * nested items might need a repair are remembered). The {@link DamagedSlotIndex} is used as documented at
+     * {@link #repair(Player, CommandFunction, RepairAccumulator)}. If the given function is not a repair function, an
+     * {@link IllegalArgumentException} will be thrown.
+     *
+     * @param player   player whose items to capture
+     * @param function function type defining the content to capture
+     * @return the snapshot
+     * @see #scan(InventorySnapshot)
      */
     @NotNull
-    private Method getSetDurabilityMethod() throws NoSuchMethodException {
-        return VersionConstants.LEGACY_DURABILITY ? ItemStack.class.getDeclaredMethod("setDurability", short.class) : damageableClass.getDeclaredMethod("setDamage", int.class);
+    public InventorySnapshot capture(@NotNull Player player, @NotNull CommandFunction function) {
+        SlotPlan plan = getPlan(function);
+        Inventory inventory = plan.getInventory(player);
+        InventorySnapshot snapshot = new InventorySnapshot(player, inventory);
+        if (!plan.isSupported()) {
+            snapshot.getResult().recordUnsupported();
+            return snapshot;
+        }
+
+        NestedRepair nested = nestedRepairs.get();
+        ItemStack[] contents = inventory.getContents(), armor = null;
+        long slots = plan.getSlots(player.getInventory().getHeldItemSlot());
+
+        // Capture only the slots which might be damaged, or hold containers (the ender chest is not indexed)
+        if (damagedSlots != null && !plan.isEnderChest()) {
+            long damaged = getDamagedSlots(player, (PlayerInventory) inventory);
+            if (nested != null)
+                damaged |= getContainerSlots(contents, slots);
+            snapshot.getResult().recordIntact(Long.bitCount(slots & ~damaged));
+            slots &= damaged;
+        }
+
+        // Capture
+        for (; slots != 0; slots &= slots - 1) {
+            int slot = Long.numberOfTrailingZeros(slots);
+            ItemStack item;
+
+            // Contents of versions older than 1.9 do not include the armor
+            if (slot >= contents.length) {
+                if (armor == null)
+                    armor = ((PlayerInventory) inventory).getArmorContents();
+                item = armor[slot - SlotPlan.ARMOR_OFFSET];
+            } else {
+                item = contents[slot];
+            }
+
+            // Certainly not damaged
+            if (!canBeDamaged(item) || !durability.mayBeDamaged(item)) {
+                snapshot.getResult().recordIntact();
+                // Might hold damaged items
+                if (nested != null && nested.canOpen(item, 1))
+                    snapshot.addContainer(slot);
+                continue;
+            }
+
+            snapshot.addCandidate(slot, item.clone());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Evaluates damage and blocked items of the given snapshot. As the snapshot holds copies of the items, this method
+     * can be called from any thread.
+     *
+     * @param snapshot the snapshot to scan
+     * @see #apply(InventorySnapshot)
+     */
+    public void scan(@NotNull InventorySnapshot snapshot) {
+        BlockedItemIndex blockedItems = blockedItemIndex.get();
+        RepairAccumulator result = snapshot.getResult();
+
+        for (long slots = snapshot.getCandidates(); slots != 0; slots &= slots - 1) {
+            int slot = Long.numberOfTrailingZeros(slots);
+            ItemContext context = new ItemContext(snapshot.getCopy(slot));
+
+            // Not damaged
+            if (durability.getDamage(context) == 0) {
+                result.recordIntact();
+                continue;
+            }
+            // Check blocked items
+            boolean blocked = isBlocked(blockedItems, context);
+            result.recordEvaluations(context.getEvaluations());
+            if (blocked) {
+                result.recordBlocked();
+                continue;
+            }
+
+            snapshot.markDamaged(slot);
+        }
     }
 
     /**
-     * Returns reference of the method for getting the durability of an item according to the current server version in
-     * use.
+     * Resets damage of the items found damaged by {@link #scan(InventorySnapshot)}. Must be called from the main
+     * thread.
+     * <p>
+     * The damage is reset only if the slot still holds the same item as when captured. Otherwise, the item now in the
+     * slot is repaired as by {@link #repair(ItemStack, RepairAccumulator)}. Items nested in the remembered containers
+     * are repaired as well.
      *
-     * @return the reference of the method for getting the durability of an item
-     * @throws NoSuchMethodException if the method could not be found
+     * @param snapshot the scanned snapshot to apply
+     */
+    public void apply(@NotNull InventorySnapshot snapshot) {
+        Inventory inventory = snapshot.getInventory();
+        RepairAccumulator result = snapshot.getResult();
+
+        for (long slots = snapshot.getDamaged(); slots != 0; slots &= slots - 1) {
+            int slot = Long.numberOfTrailingZeros(slots);
+            ItemStack item = inventory.getItem(slot);
+
+            // Changed since captured
+            if (item == null || !item.equals(snapshot.getCopy(slot))) {
+                repair(item, result);
+                continue;
+            }
+
+            // Repair and set back
+            ItemContext context = new ItemContext(item);
+            durability.setDamage(context, 0);
+            context.writeBack();
+            result.recordRepaired();
+        }
+
+        // No containers
+        if (snapshot.getContainers() == 0)
+            return;
+
+        // Nested items
+        NestedRepair nested = nestedRepairs.get();
+        if (nested == null)
+            return;
+        BlockedItemIndex blockedItems = blockedItemIndex.get();
+        for (long slots = snapshot.getContainers(); slots != 0; slots &= slots - 1) {
+            ItemStack item = inventory.getItem(Long.numberOfTrailingZeros(slots));
+            if (nested.canOpen(item, 1))
+                repairContents(item, result, blockedItems, nested, 1, null);
+        }
+    }
+
+    /**
+     * Returns the slot plan of the given function. If the given function is not a repair function, an
+     * {@link IllegalArgumentException} will be thrown.
+     *
+     * @param function the function
+     * @return the slot plan of the function
      */
     @NotNull
-    private Method getGetDurabilityMethod() throws NoSuchMethodException {
-        return VersionConstants.LEGACY_DURABILITY ? ItemStack.class.getDeclaredMethod("getDurability") : damageableClass.getDeclaredMethod("getDamage");
+    public SlotPlan getPlan(@NotNull CommandFunction function) {
+        SlotPlan plan = plans.get(function);
+        if (plan == null)
+            throw new IllegalArgumentException("The passed function is not a repair function!");
+        return plan;
+    }
+
+    /**
+     * Returns whether the given item is blocked by the given index, served from the {@link VerdictCache} if in use.
+     * Thread-safe.
+     *
+     * @param blockedItems the blocked items to check against
+     * @param context      context of the item to check
+     * @return whether the given item is blocked
+     */
+    public boolean isBlocked(@NotNull BlockedItemIndex blockedItems, @NotNull ItemContext context) {
+        return verdicts == null ? blockedItems.isBlocked(context) : verdicts.isBlocked(blockedItems, context);
     }
 
     /**
-     * Returns the damageable interface reference for item durability management. Returns <code>null</code> if running
-     * an unsupported server version (older than 1.13).
+     * Returns the verdict cache.
      *
-     * @return the damageable interface reference, or <code>null</code> if running an unsupported server version
-     * @throws ClassNotFoundException if the class could not be found
+     * @return the verdict cache, or <code>null</code> if disabled
      */
     @Nullable
-    private Class<?> getDamageableClass() throws ClassNotFoundException {
-        return VersionConstants.LEGACY_DURABILITY ? null : Class.forName("org.bukkit.inventory.meta.Damageable");
+    public VerdictCache getVerdictCache() {
+        return verdicts;
+    }
+
+    /**
+     * Returns the total time of the per-item phases (matching and writing) in the given timings.
+     *
+     * @param timings the timings
+     * @return the total time of the per-item phases
+     */
+    private static long getItemPhases(@NotNull CommandTimings timings) {
+        return timings.get(CommandTimings.Phase.MATCH) + timings.get(CommandTimings.Phase.WRITE);
+    }
+
+    /**
+     * Returns whether the given item can be damaged.
+     *
+     * @param itemStack the item
+     * @return whether the item can be damaged
+     */
+    private static boolean canBeDamaged(@Nullable ItemStack itemStack) {
+        return itemStack != null && itemStack.getType() != null && itemStack.getType() != Material.AIR && itemStack.getType().getMaxDurability() != 0;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pool deduplicating the strings and lore of the blocked items compiled in one load, so equal values are shared
+ * across all of them instead of being held by each blocked item separately. Not thread-safe.
+ */
+public class RulePool {
+
+    /**
+     * An empty lore.
+     */
+    private static final String[] EMPTY_LORE = new String[0];
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<List<String>, String[]> lore = new HashMap<>();
+
+    /**
+     * Returns the pooled instance of the given string.
+     *
+     * @param string the string
+     * @return the pooled instance
+     */
+    @NotNull
+    public String string(@NotNull String string) {
+        String pooled = strings.putIfAbsent(string, string);
+        return pooled == null ? string : pooled;
+    }
+
+    /**
+     * Returns the pooled instance of the given lore. The returned array must not be modified.
+     *
+     * @param lines lines of the lore
+     * @return the pooled lore
+     */
+    @NotNull
+    public String[] lore(@NotNull List<String> lines) {
+        if (lines.isEmpty())
+            return EMPTY_LORE;
+
+        String[] pooled = lore.get(lines);
+        if (pooled != null)
+            return pooled;
+
+        // Pool
+        pooled = new String[lines.size()];
+        for (int i = 0; i < pooled.length; i++)
+            pooled[i] = string(lines.get(i));
+        lore.put(Arrays.asList(pooled), pooled);
+        return pooled;
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.utils.VersionConstants;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * An immutable plan of player inventory slots to repair, compiled from a repair {@link CommandFunction}.
+ * <p>
+ * The slots are represented by a bitset over the raw slot indices of the player inventory contents - storage
+ * (<code>0-35</code>, hotbar being <code>0-8</code>), armor (<code>36-39</code>) and off-hand (<code>40</code>). As the
+ * main-hand slot is known only at the time of the repair, it is represented separately and merged into the bitset by
+ * {@link #getSlots(int)}, so every slot is visited exactly once.
+ * <p>
+ * Plans of the ender chest instead represent the slots of the player's ender chest (<code>0-26</code>).
+ */
+public class SlotPlan {
+
+    /**
+     * Raw index of the first armor slot.
+     */
+    public static final int ARMOR_OFFSET = 36;
+
+    /**
+     * Raw index of the off-hand slot.
+     */
+    public static final int OFF_HAND_SLOT = 40;
+
+    /**
+     * Amount of raw slot indices.
+     */
+    public static final int SIZE = 41;
+
+    /**
+     * Amount of ender chest slots.
+     */
+    public static final int ENDER_CHEST_SIZE = 27;
+
+    /**
+     * Storage slots.
+     */
+    private static final long STORAGE = range(0, ARMOR_OFFSET);
+
+    /**
+     * Hotbar slots.
+     */
+    private static final long HOTBAR = range(0, 9);
+
+    /**
+     * Armor slots.
+     */
+    private static final long ARMOR = range(ARMOR_OFFSET, OFF_HAND_SLOT);
+
+    /**
+     * Off-hand slot.
+     */
+    private static final long OFF_HAND = 1L << OFF_HAND_SLOT;
+
+    private final long slots;
+    private final boolean mainHand, enderChest;
+
+    /**
+     * Initializes a plan of the player inventory.
+     * <p>
+     * If the off-hand is unsupported by the server, it is removed from the given slots.
+     *
+     * @param slots    bitset of the raw slot indices to repair
+     * @param mainHand if to also repair the main-hand slot
+     */
+    private SlotPlan(long slots, boolean mainHand) {
+        this.slots = VersionConstants.OFF_HAND_UNSUPPORTED ? slots & ~OFF_HAND : slots;
+        this.mainHand = mainHand;
+        this.enderChest = false;
+    }
+
+    /**
+     * Initializes a plan of the ender chest.
+     *
+     * @param slots bitset of the ender chest slots to repair
+     */
+    private SlotPlan(long slots) {
+        this.slots = slots;
+        this.mainHand = false;
+        this.enderChest = true;
+    }
+
+    /**
+     * Returns the bitset of the raw slot indices to repair, including the main-hand slot if planned.
+     *
+     * @param heldSlot the currently held (main-hand) slot
+     * @return the bitset of the raw slot indices to repair
+     */
+    public long getSlots(int heldSlot) {
+        return mainHand ? slots | 1L << heldSlot : slots;
+    }
+
+    /**
+     * Returns whether the plan represents slots of the ender chest, rather than of the player inventory.
+     *
+     * @return whether the plan represents slots of the ender chest
+     */
+    public boolean isEnderChest() {
+        return enderChest;
+    }
+
+    /**
+     * Returns the inventory of the given player whose slots the plan represents.
+     *
+     * @param player the player
+     * @return the inventory
+     */
+    @NotNull
+    public Inventory getInventory(@NotNull Player player) {
+        return enderChest ? player.getEnderChest() : player.getInventory();
+    }
+
+    /**
+     * Returns whether the plan is supported by the server. A plan is unsupported if it consisted of only the off-hand
+     * slot, which is unsupported by the server.
+     *
+     * @return whether the plan is supported by the server
+     */
+    public boolean isSupported() {
+        return mainHand || slots != 0;
+    }
+
+    /**
+     * Compiles the plan for the given function. Returns <code>null</code> if the function is not a repair function.
+     *
+     * @param function the function to compile the plan for
+     * @return the plan, or <code>null</code> if not a repair function
+     */
+    @Nullable
+    public static SlotPlan compile(@NotNull CommandFunction function) {
+        switch (function) {
+            case ALL:
+                return new SlotPlan(STORAGE | ARMOR | OFF_HAND, false);
+            case INVENTORY:
+                return new SlotPlan(STORAGE | OFF_HAND, false);
+            case ARMOR:
+                return new SlotPlan(ARMOR, false);
+            case HOTBAR:
+                return new SlotPlan(HOTBAR | OFF_HAND, false);
+            case BOTH_HANDS:
+                return new SlotPlan(OFF_HAND, true);
+            case MAIN_HAND:
+                return new SlotPlan(0, true);
+            case OFF_HAND:
+                return new SlotPlan(OFF_HAND, false);
+            case ENDER_CHEST:
+                return new SlotPlan(range(0, ENDER_CHEST_SIZE));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Compiles plans for all repair functions.
+     *
+     * @return the plans, by their functions
+     */
+    @NotNull
+    public static Map<CommandFunction, SlotPlan> compileAll() {
+        Map<CommandFunction, SlotPlan> plans = new EnumMap<>(CommandFunction.class);
+        for (CommandFunction function : CommandFunction.values()) {
+            SlotPlan plan = compile(function);
+            if (plan != null)
+                plans.put(function, plan);
+        }
+        return plans;
+    }
+
+    /**
+     * Returns the raw slot holding the given item, or <code>-1</code> if none. The slots are searched in order of how
+     * likely they are to hold a damaged item: the main-hand, the armor and the off-hand, the rest of the inventory.
+     *
+     * @param inventory the inventory to search
+     * @param item      the item to find
+     * @return the raw slot holding the item, or <code>-1</code> if none
+     */
+    public static int find(@NotNull PlayerInventory inventory, @NotNull ItemStack item) {
+        ItemStack[] contents = inventory.getContents(), armor = inventory.getArmorContents();
+
+        // Main-hand
+        int held = inventory.getHeldItemSlot();
+        if (item.equals(contents[held]))
+            return held;
+
+        // Armor
+        for (int slot = 0; slot < armor.length; slot++)
+            if (item.equals(armor[slot]))
+                return ARMOR_OFFSET + slot;
+
+        // Off-hand
+        if (!VersionConstants.OFF_HAND_UNSUPPORTED && OFF_HAND_SLOT < contents.length && item.equals(contents[OFF_HAND_SLOT]))
+            return OFF_HAND_SLOT;
+
+        // Storage
+        for (int slot = 0; slot < ARMOR_OFFSET && slot < contents.length; slot++)
+            if (item.equals(contents[slot]))
+                return slot;
+
+        return -1;
+    }
+
+    /**
+     * Returns a bitset of the given range of slots.
+     *
+     * @param min the min slot (inclusive)
+     * @param max the max slot (exclusive)
+     * @return the bitset of the range
+     */
+    private static long range(int min, int max) {
+        return (1L << max) - (1L << min);
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import dev.dejvokep.repairitem.utils.MemoryEstimator;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Class representing a blocked item matched by a tag stored in the item's {@link PersistentDataContainer} (usually by
+ * another plugin).
+ * <p>
+ * Tag rules are not compared one by one; they are indexed by their key in the {@link BlockedItemIndex}, so only the rules
+ * keyed by one of the item's tags are ever tested. Available only on servers running version 1.16 and newer,
+ * which allow listing the tags of an item.
+ */
+public class TagRule {
+
+    /**
+     * Path to the tag's key, in format <code>namespace:key</code>.
+     */
+    public static final String PATH_TAG = "tag";
+
+    /**
+     * Path to the tag's value.
+     */
+    public static final String PATH_VALUE = "value";
+
+    private final NamespacedKey key;
+    private final Material type;
+    private final String value;
+    private final Long number;
+
+    /**
+     * Creates a tag rule using the properties stored in the given map. The property key definitions must adhere to the
+     * format defined by the class constants; the type is defined by {@link BlockedItem#PATH_TYPE}.
+     *
+     * @param section a section map containing the properties
+     * @param pool    the pool to share the strings through
+     * @throws IllegalArgumentException if any of the properties is invalid
+     */
+    public TagRule(@NotNull Map<?, ?> section, @NotNull RulePool pool) {
+        this.key = parseKey(String.valueOf(section.get(PATH_TAG)));
+        this.type = section.containsKey(BlockedItem.PATH_TYPE) ? Material.valueOf(section.get(BlockedItem.PATH_TYPE).toString()) : null;
+        this.value = section.containsKey(PATH_VALUE) ? pool.string(section.get(PATH_VALUE).toString()) : null;
+        this.number = value == null ? null : parseNumber(value);
+    }
+
+    /**
+     * Parses a key in format <code>namespace:key</code>; if the namespace is omitted, <code>minecraft</code> is used.
+     *
+     * @param key the key to parse
+     * @return the parsed key
+     * @throws IllegalArgumentException if the key is invalid
+     */
+    @NotNull
+    private static NamespacedKey parseKey(@NotNull String key) {
+        String[] parts = key.toLowerCase(Locale.ROOT).split(":", -1);
+        if (parts.length > 2 || parts[parts.length - 1].isEmpty())
+            throw new IllegalArgumentException("Invalid tag key: " + key);
+        return parts.length == 1 ? new NamespacedKey("minecraft", parts[0]) : new NamespacedKey(parts[0], parts[1]);
+    }
+
+    /**
+     * Parses the given value as an integral number; booleans are parsed as <code>1</code> and <code>0</code>, as
+     * stored by plugins.
+     *
+     * @param value the value to parse
+     * @return the parsed number, or <code>null</code> if not a number
+     */
+    @Nullable
+    private static Long parseNumber(@NotNull String value) {
+        if (value.equalsIgnoreCase("true"))
+            return 1L;
+        if (value.equalsIgnoreCase("false"))
+            return 0L;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the key of the tag this rule matches.
+     *
+     * @return the key of the tag
+     */
+    @NotNull
+    public NamespacedKey getKey() {
+        return key;
+    }
+
+    /**
+     * Adds the approximate retained size of this rule to the given estimator. The key is counted as not shared.
+     *
+     * @param estimator the estimator
+     */
+    public void estimateSize(@NotNull MemoryEstimator estimator) {
+        // This object, the key and the number
+        estimator.object(4, 0).object(2, 0).string(key.getNamespace()).string(key.getKey()).string(value);
+        if (number != null)
+            estimator.object(0, 8);
+    }
+
+    /**
+     * Returns whether the given item matches this rule. The item must carry the {@link #getKey() key} of this rule.
+     * <p>
+     * If no value is set, presence of the tag is sufficient. Otherwise, the value is compared against string tags and,
+     * if it is a number or a boolean, against integral tags.
+     *
+     * @param context context of the item to compare, which carries the tag
+     * @return whether the given item matches this rule
+     */
+    public boolean matches(@NotNull ItemContext context) {
+        // Type
+        if (type != null && type != context.getItem().getType())
+            return false;
+        // Presence only
+        if (value == null)
+            return true;
+
+        PersistentDataContainer container = context.getPersistentData();
+        if (container == null)
+            return false;
+        // Compare
+        if (container.has(key, PersistentDataType.STRING))
+            return value.equals(container.get(key, PersistentDataType.STRING));
+        if (number == null)
+            return false;
+        if (container.has(key, PersistentDataType.INTEGER))
+            return number == (long) container.get(key, PersistentDataType.INTEGER);
+        if (container.has(key, PersistentDataType.LONG))
+            return number == (long) container.get(key, PersistentDataType.LONG);
+        if (container.has(key, PersistentDataType.BYTE))
+            return number == (long) container.get(key, PersistentDataType.BYTE);
+        if (container.has(key, PersistentDataType.SHORT))
+            return number == (long) container.get(key, PersistentDataType.SHORT);
+        return false;
+    }
+
+}
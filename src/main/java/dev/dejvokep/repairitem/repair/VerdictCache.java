@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.repair;
+
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU cache of blocked item verdicts, keyed by {@link ItemFingerprint item fingerprints}. Thread-safe.
+ * <p>
+ * The cache holds verdicts of one {@link BlockedItemIndex#getVersion() version} of the rules at a time. Once an index
+ * of another version is queried (the configuration was reloaded), the cache is cleared wholesale.
+ * <p>
+ * {@link TagRule Tag rules} are not cached, as they are looked up by key directly and the tag values are not part of
+ * the fingerprint. Items of types no blocked item applies to are not cached either; the fingerprint includes only the
+ * properties compared by the blocked items applying to the item's type, so no other property is decoded.
+ */
+public class VerdictCache {
+
+    private final int capacity;
+    private final Map<ItemFingerprint, Boolean> verdicts;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private long version = -1;
+
+    /**
+     * Initializes an empty cache.
+     *
+     * @param capacity the maximum amount of cached verdicts
+     */
+    public VerdictCache(int capacity) {
+        this.capacity = capacity;
+        this.verdicts = new LinkedHashMap<ItemFingerprint, Boolean>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ItemFingerprint, Boolean> eldest) {
+                return size() > VerdictCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns whether the given item is blocked by the given index, as by {@link BlockedItemIndex#isBlocked(ItemContext)}.
+     * The verdict is served from the cache, if present.
+     *
+     * @param index   the index to check against
+     * @param context context of the item to check
+     * @return whether the given item is blocked
+     */
+    public boolean isBlocked(@NotNull BlockedItemIndex index, @NotNull ItemContext context) {
+        // Nothing to match against
+        if (index.size() == 0)
+            return false;
+        // Tag rules
+        if (index.hasTagRules() && index.isTagged(context))
+            return true;
+
+        // No blocked item applies to the type
+        Material type = context.getItem().getType();
+        if (!index.appliesTo(type))
+            return false;
+
+        ItemFingerprint fingerprint = new ItemFingerprint(context, index.getProperties(type));
+        Boolean verdict;
+        synchronized (verdicts) {
+            // Rules changed
+            if (version != index.getVersion()) {
+                verdicts.clear();
+                version = index.getVersion();
+            }
+            verdict = verdicts.get(fingerprint);
+        }
+
+        // Cached
+        if (verdict != null) {
+            hits.increment();
+            return verdict;
+        }
+
+        // Evaluate
+        misses.increment();
+        boolean blocked = index.matchesBlockedItems(context);
+        synchronized (verdicts) {
+            if (version == index.getVersion())
+                verdicts.put(fingerprint, blocked);
+        }
+        return blocked;
+    }
+
+    /**
+     * Returns the amount of verdicts served from the cache.
+     *
+     * @return the amount of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of verdicts which had to be evaluated.
+     *
+     * @return the amount of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the amount of currently cached verdicts.
+     *
+     * @return the amount of cached verdicts
+     */
+    public int size() {
+        synchronized (verdicts) {
+            return verdicts.size();
+        }
+    }
+
+    /**
+     * Returns the maximum amount of cached verdicts.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Creates a cache with the given capacity.
+     *
+     * @param capacity the maximum amount of cached verdicts
+     * @return the cache, or <code>null</code> if the capacity is not positive (cache disabled)
+     */
+    @Nullable
+    public static VerdictCache create(int capacity) {
+        return capacity > 0 ? new VerdictCache(capacity) : null;
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.stats;
+
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Timing breakdown of one command invocation, split into {@link Phase phases}.
+ * <p>
+ * Phases are measured by {@link System#nanoTime()} spans and accumulated, so a phase may consist of multiple spans
+ * (e.g. matching of every item). Instances are used by one thread at a time; if the command hops between threads,
+ * the time spent waiting for the hop is excluded by {@link #suspend() suspending} the timings.
+ */
+public class CommandTimings {
+
+    /**
+     * Phases of a command invocation.
+     */
+    public enum Phase {
+        /**
+         * Resolution of the target player(s).
+         */
+        TARGET,
+        /**
+         * Scanning of the items (excluding the other item phases).
+         */
+        SCAN,
+        /**
+         * Matching of the damaged items against the blocked items.
+         */
+        MATCH,
+        /**
+         * Write-back of the repaired items.
+         */
+        WRITE,
+        /**
+         * Sending of the messages.
+         */
+        MESSAGE
+    }
+
+    /**
+     * Cached phases.
+     */
+    private static final Phase[] PHASES = Phase.values();
+
+    private final CommandFunction function;
+    private long start = System.nanoTime(), suspended;
+    private final long[] phases = new long[PHASES.length];
+
+    /**
+     * Starts timing an invocation of the given function.
+     *
+     * @param function the function invoked
+     */
+    public CommandTimings(@NotNull CommandFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * Adds the given time to the given phase.
+     *
+     * @param phase the phase
+     * @param nanos the time in nanoseconds
+     */
+    public void add(@NotNull Phase phase, long nanos) {
+        phases[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Adds time elapsed since the given {@link System#nanoTime()} to the given phase.
+     *
+     * @param phase the phase
+     * @param since the start of the span
+     */
+    public void since(@NotNull Phase phase, long since) {
+        phases[phase.ordinal()] += System.nanoTime() - since;
+    }
+
+    /**
+     * Suspends the timings while the command waits to continue on another thread.
+     */
+    public void suspend() {
+        suspended = System.nanoTime();
+    }
+
+    /**
+     * Resumes the timings after {@link #suspend()}, excluding the time waited by shifting the
+     * {@link #getStart() start} forward.
+     */
+    public void resume() {
+        start += System.nanoTime() - suspended;
+    }
+
+    /**
+     * Returns the total time of the given phase.
+     *
+     * @param phase the phase
+     * @return the time in nanoseconds
+     */
+    public long get(@NotNull Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which the invocation started, shifted forward by the time spent
+     * {@link #suspend() suspended}.
+     *
+     * @return the start of the invocation
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the function invoked.
+     *
+     * @return the function
+     */
+    @NotNull
+    public CommandFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * Appends the breakdown to the given builder, in format <code>phase 0.00 ms, ...</code>.
+     *
+     * @param builder the builder
+     * @return the given builder
+     */
+    @NotNull
+    public StringBuilder appendBreakdown(@NotNull StringBuilder builder) {
+        for (Phase phase : PHASES) {
+            if (phase.ordinal() > 0)
+                builder.append(", ");
+            builder.append(phase.name().toLowerCase(Locale.ROOT)).append(' ').append(String.format(Locale.ROOT, "%.2f", phases[phase.ordinal()] / 1_000_000D)).append(" ms");
+        }
+        return builder;
+    }
+
+}
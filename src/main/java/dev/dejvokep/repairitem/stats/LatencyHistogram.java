@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with fixed buckets.
+ * <p>
+ * Recording a sample is a bucket lookup over a small array and two uncontended {@link LongAdder} increments, so it is
+ * cheap enough to stay on in production. Percentiles are approximated by the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Upper bounds (inclusive) of the buckets, in nanoseconds. Samples above the last bound fall into an overflow
+     * bucket.
+     */
+    private static final long[] BOUNDS = {
+            50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L,
+            50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 5_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Initializes an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param nanos the sample in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket])
+            bucket++;
+
+        buckets[bucket].increment();
+        total.add(nanos);
+    }
+
+    /**
+     * Returns the amount of recorded samples.
+     *
+     * @return the amount of samples
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets)
+            count += bucket.sum();
+        return count;
+    }
+
+    /**
+     * Returns the mean of the recorded samples, in nanoseconds; <code>0</code> if there are none.
+     *
+     * @return the mean in nanoseconds
+     */
+    public long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+
+    /**
+     * Returns the approximate percentile of the recorded samples, in nanoseconds; <code>0</code> if there are none.
+     * <p>
+     * The value is the upper bound of the bucket the percentile falls into; for the overflow bucket, the mean of all
+     * samples or the last bound is returned, whichever is greater.
+     *
+     * @param percentile the percentile, from <code>0</code> to <code>1</code>
+     * @return the approximate percentile in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        // Snapshot the counts
+        long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++)
+            count += counts[i] = buckets[i].sum();
+        if (count == 0)
+            return 0;
+
+        // Find the bucket
+        long rank = (long) Math.ceil(percentile * count), seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return BOUNDS[i];
+        }
+        return Math.max(BOUNDS[BOUNDS.length - 1], total.sum() / count);
+    }
+
+    /**
+     * Resets the histogram.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets)
+            bucket.reset();
+        total.reset();
+    }
+
+}
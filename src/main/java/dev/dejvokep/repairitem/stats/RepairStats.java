@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.stats;
+
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of repair statistics, accumulated since the plugin was enabled.
+ * <p>
+ * All the values are {@link LongAdder counters} and {@link LatencyHistogram histograms}, so recording never blocks
+ * and is safe from any thread. Repair results are recorded once per command (or mass repair), not per item.
+ */
+public class RepairStats {
+
+    private final Map<CommandFunction, LatencyHistogram> commands = new EnumMap<>(CommandFunction.class);
+    private final LatencyHistogram massRepairs = new LatencyHistogram();
+    private final LongAdder repairs = new LongAdder(), repaired = new LongAdder(), blocked = new LongAdder(),
+            intact = new LongAdder(), evaluations = new LongAdder();
+
+    /**
+     * Initializes an empty registry.
+     */
+    public RepairStats() {
+        // The map is never modified afterwards, so it can be read concurrently
+        for (CommandFunction function : CommandFunction.values())
+            commands.put(function, new LatencyHistogram());
+    }
+
+    /**
+     * Records execution of a command.
+     *
+     * @param function the function executed
+     * @param nanos    time the execution took, in nanoseconds
+     */
+    public void recordCommand(@NotNull CommandFunction function, long nanos) {
+        commands.get(function).record(nanos);
+    }
+
+    /**
+     * Records a finished mass repair.
+     *
+     * @param nanos time from submitting the repair to its completion, in nanoseconds
+     */
+    public void recordMassRepair(long nanos) {
+        massRepairs.record(nanos);
+    }
+
+    /**
+     * Records the given repair result.
+     *
+     * @param result the result
+     */
+    public void record(@NotNull RepairAccumulator result) {
+        repairs.increment();
+        repaired.add(result.getRepaired());
+        blocked.add(result.getBlocked());
+        intact.add(result.getIntact());
+        evaluations.add(result.getEvaluations());
+    }
+
+    /**
+     * Returns the latency histogram of the given function.
+     *
+     * @param function the function
+     * @return the latency histogram
+     */
+    @NotNull
+    public LatencyHistogram getCommandLatency(@NotNull CommandFunction function) {
+        return commands.get(function);
+    }
+
+    /**
+     * Returns the duration histogram of mass repairs.
+     *
+     * @return the duration histogram
+     */
+    @NotNull
+    public LatencyHistogram getMassRepairDuration() {
+        return massRepairs;
+    }
+
+    /**
+     * Returns the amount of recorded repairs (results).
+     *
+     * @return the amount of repairs
+     */
+    public long getRepairs() {
+        return repairs.sum();
+    }
+
+    /**
+     * Returns the amount of items repaired.
+     *
+     * @return the amount of items repaired
+     */
+    public long getRepaired() {
+        return repaired.sum();
+    }
+
+    /**
+     * Returns the amount of damaged items which were not repaired because they are blocked.
+     *
+     * @return the amount of blocked items
+     */
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    /**
+     * Returns the amount of items which did not need a repair.
+     *
+     * @return the amount of intact items
+     */
+    public long getIntact() {
+        return intact.sum();
+    }
+
+    /**
+     * Returns the amount of blocked item rule evaluations.
+     *
+     * @return the amount of rule evaluations
+     */
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.stats;
+
+import dev.dejvokep.repairitem.RepairItem;
+import dev.dejvokep.repairitem.config.Settings;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs commands which took longer than the {@link Settings#getSlowCommandThreshold() threshold}, together with their
+ * {@link CommandTimings timing breakdown}.
+ * <p>
+ * Below the threshold, finishing a command costs one {@link System#nanoTime()} call. At most one entry is logged per
+ * {@link Settings#getSlowCommandLogInterval() interval}; the slow commands in between are only counted and reported
+ * with the next entry.
+ */
+public class SlowCommandDetector {
+
+    private final RepairItem plugin;
+    private final AtomicLong nextLog = new AtomicLong(System.nanoTime());
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    /**
+     * Initializes the detector. The threshold is read from the current {@link RepairItem#getSettings() settings}.
+     *
+     * @param plugin the plugin instance
+     */
+    public SlowCommandDetector(@NotNull RepairItem plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Finishes timing of the given command and logs it, if it was slow.
+     *
+     * @param timings timings of the command
+     * @param sender  sender of the command
+     */
+    public void finish(@NotNull CommandTimings timings, @NotNull CommandSender sender) {
+        long now = System.nanoTime(), elapsed = now - timings.getStart();
+        Settings settings = plugin.getSettings();
+
+        // Disabled or fast enough
+        if (settings.getSlowCommandThreshold() < 0 || elapsed <= settings.getSlowCommandThreshold())
+            return;
+
+        // Rate limit
+        long next = nextLog.get();
+        if (now - next < 0 || !nextLog.compareAndSet(next, now + settings.getSlowCommandLogInterval())) {
+            suppressed.incrementAndGet();
+            return;
+        }
+
+        // Log
+        StringBuilder builder = new StringBuilder("Command \"").append(timings.getFunction().getPath()).append("\" issued by ").append(sender.getName())
+                .append(" took ").append(String.format(Locale.ROOT, "%.2f", elapsed / 1_000_000D)).append(" ms (");
+        timings.appendBreakdown(builder).append(").");
+        int suppressed = this.suppressed.getAndSet(0);
+        if (suppressed > 0)
+            builder.append(" Other slow commands since the last report: ").append(suppressed).append('.');
+        plugin.getLogger().warning(builder.toString());
+    }
+
+}
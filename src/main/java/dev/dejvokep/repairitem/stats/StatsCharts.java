@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.stats;
+
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import org.bstats.bukkit.Metrics;
+import org.bstats.charts.AdvancedPie;
+import org.bstats.charts.SingleLineChart;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.LongSupplier;
+
+/**
+ * Custom bStats charts backed by the {@link RepairStats}.
+ * <p>
+ * bStats expects the values collected since the last submission, so the charts report differences of the
+ * (monotonic) statistics between submissions.
+ */
+public class StatsCharts {
+
+    /**
+     * Registers the charts.
+     *
+     * @param metrics the metrics to register to
+     * @param stats   the statistics to report
+     */
+    public static void register(@NotNull Metrics metrics, @NotNull RepairStats stats) {
+        metrics.addCustomChart(new SingleLineChart("repaired_items", delta(stats::getRepaired)));
+        metrics.addCustomChart(new SingleLineChart("blocked_items", delta(stats::getBlocked)));
+        metrics.addCustomChart(new SingleLineChart("mass_repairs", delta(() -> stats.getMassRepairDuration().getCount())));
+
+        // Usage of the functions
+        Map<CommandFunction, Long> last = new HashMap<>();
+        metrics.addCustomChart(new AdvancedPie("function_usage", () -> {
+            Map<String, Integer> values = new HashMap<>();
+            for (CommandFunction function : CommandFunction.values()) {
+                long count = stats.getCommandLatency(function).getCount();
+                long previous = last.getOrDefault(function, 0L);
+                last.put(function, count);
+                if (count > previous)
+                    values.put(function.getPath(), (int) Math.min(Integer.MAX_VALUE, count - previous));
+            }
+            return values;
+        }));
+    }
+
+    /**
+     * Returns a chart callable reporting the difference of the given supplier's value since the last call.
+     *
+     * @param supplier the supplier of the monotonic value
+     * @return the callable
+     */
+    @NotNull
+    private static Callable<Integer> delta(@NotNull LongSupplier supplier) {
+        long[] last = {0};
+        return () -> {
+            long current = supplier.getAsLong(), delta = current - last[0];
+            last[0] = current;
+            return (int) Math.min(Integer.MAX_VALUE, delta);
+        };
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Approximate estimator of the retained memory of an object graph, assuming a 64-bit JVM with compressed references
+ * and compact strings (the defaults).
+ * <p>
+ * Arrays and strings shared by multiple objects are counted only once.
+ */
+public class MemoryEstimator {
+
+    /**
+     * Size of an object header, in bytes.
+     */
+    private static final int OBJECT_HEADER = 12;
+    /**
+     * Size of an array header, in bytes.
+     */
+    private static final int ARRAY_HEADER = 16;
+    /**
+     * Size of a reference, in bytes.
+     */
+    private static final int REFERENCE = 4;
+    /**
+     * Shallow size of a string, in bytes.
+     */
+    private static final int STRING = 24;
+
+    private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long total = 0;
+
+    /**
+     * Adds an object with the given amount of reference fields and bytes of primitive fields.
+     *
+     * @param references     the amount of reference fields
+     * @param primitiveBytes the total size of primitive fields, in bytes
+     * @return this estimator
+     */
+    @NotNull
+    public MemoryEstimator object(int references, int primitiveBytes) {
+        total += align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+        return this;
+    }
+
+    /**
+     * Adds the given array of the given length, unless already counted.
+     *
+     * @param array        the array, or <code>null</code> if none
+     * @param length       length of the array
+     * @param elementBytes size of one element, in bytes
+     * @return this estimator
+     */
+    @NotNull
+    public MemoryEstimator array(@Nullable Object array, int length, int elementBytes) {
+        if (array != null && seen.add(array))
+            total += align(ARRAY_HEADER + (long) length * elementBytes);
+        return this;
+    }
+
+    /**
+     * Adds the given string, unless already counted.
+     *
+     * @param string the string, or <code>null</code> if none
+     * @return this estimator
+     */
+    @NotNull
+    public MemoryEstimator string(@Nullable String string) {
+        if (string != null && seen.add(string))
+            total += STRING + align(ARRAY_HEADER + string.length());
+        return this;
+    }
+
+    /**
+     * Returns the estimated total size, in bytes.
+     *
+     * @return the estimated total size
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Aligns the given size to 8 bytes.
+     *
+     * @param size the size
+     * @return the aligned size
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
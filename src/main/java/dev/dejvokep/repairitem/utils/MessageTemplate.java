@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.utils;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A message compiled from the configuration.
+ * <p>
+ * Colour codes are translated and positions of the {@link Placeholder placeholders} resolved at compile time, so
+ * rendering is a single pass filling the literal parts and placeholder values into a builder.
+ */
+public class MessageTemplate {
+
+    /**
+     * Resolver of placeholder values.
+     */
+    @FunctionalInterface
+    public interface Resolver {
+
+        /**
+         * Appends value of the given placeholder to the given builder.
+         *
+         * @param placeholder the placeholder
+         * @param builder     the builder to append to
+         */
+        void append(@NotNull Placeholder placeholder, @NotNull StringBuilder builder);
+
+    }
+
+    /**
+     * Compiled template with no lines.
+     */
+    private static final MessageTemplate EMPTY = new MessageTemplate(new String[0][], new Placeholder[0][]);
+
+    // Literal parts and placeholders of each line, literals[line][i] is followed by placeholders[line][i]
+    private final String[][] literals;
+    private final Placeholder[][] placeholders;
+
+    /**
+     * Initializes the template.
+     *
+     * @param literals     literal parts of each line
+     * @param placeholders placeholders of each line, following the literal part at the same index
+     */
+    private MessageTemplate(@NotNull String[][] literals, @NotNull Placeholder[][] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Renders the template line by line using the given builder and sends the lines to the given recipient.
+     * Placeholders are not replaced if no resolver is given.
+     *
+     * @param recipient the recipient
+     * @param builder   the builder to render with, cleared before each line
+     * @param resolver  resolver of placeholder values
+     */
+    public void send(@NotNull CommandSender recipient, @NotNull StringBuilder builder, @Nullable Resolver resolver) {
+        for (int line = 0; line < literals.length; line++) {
+            String[] literals = this.literals[line];
+            Placeholder[] placeholders = this.placeholders[line];
+
+            // No placeholders
+            if (placeholders.length == 0) {
+                recipient.sendMessage(literals[0]);
+                continue;
+            }
+
+            // Fill
+            builder.setLength(0);
+            builder.append(literals[0]);
+            for (int i = 0; i < placeholders.length; i++) {
+                if (resolver == null)
+                    builder.append(placeholders[i].getToken());
+                else
+                    resolver.append(placeholders[i], builder);
+                builder.append(literals[i + 1]);
+            }
+
+            recipient.sendMessage(builder.toString());
+        }
+    }
+
+    /**
+     * Returns whether the template has no lines to send.
+     *
+     * @return whether the template is empty
+     */
+    public boolean isEmpty() {
+        return literals.length == 0;
+    }
+
+    /**
+     * Returns a template with no lines.
+     *
+     * @return an empty template
+     */
+    @NotNull
+    public static MessageTemplate empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles the given configuration value (a string or a collection of lines) into a template. Empty lines are
+     * omitted.
+     *
+     * @param value the value to compile
+     * @return the compiled template
+     */
+    @NotNull
+    public static MessageTemplate compile(@Nullable Object value) {
+        // Lines
+        Collection<?> lines = value == null ? Collections.emptyList() : value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+        List<String[]> literals = new ArrayList<>(lines.size());
+        List<Placeholder[]> placeholders = new ArrayList<>(lines.size());
+
+        for (Object line : lines) {
+            // Validate
+            if (line == null || line.toString().isEmpty())
+                continue;
+
+            // Translate and split
+            String message = ChatColor.translateAlternateColorCodes('&', line.toString());
+            List<String> lineLiterals = new ArrayList<>();
+            List<Placeholder> linePlaceholders = new ArrayList<>();
+            int start = 0, index = message.indexOf('{');
+            while (index != -1) {
+                Placeholder placeholder = Placeholder.at(message, index);
+                // Not a placeholder
+                if (placeholder == null) {
+                    index = message.indexOf('{', index + 1);
+                    continue;
+                }
+
+                lineLiterals.add(message.substring(start, index));
+                linePlaceholders.add(placeholder);
+                start = index + placeholder.getToken().length();
+                index = message.indexOf('{', start);
+            }
+            lineLiterals.add(message.substring(start));
+
+            literals.add(lineLiterals.toArray(new String[0]));
+            placeholders.add(linePlaceholders.toArray(new Placeholder[0]));
+        }
+
+        return literals.isEmpty() ? EMPTY : new MessageTemplate(literals.toArray(new String[0][]), placeholders.toArray(new Placeholder[0][]));
+    }
+
+}
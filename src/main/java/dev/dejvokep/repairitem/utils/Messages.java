@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.utils;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.boostedyaml.block.implementation.Section;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.command.wrapper.Sender;
+import dev.dejvokep.repairitem.command.wrapper.Target;
+import dev.dejvokep.repairitem.repair.RepairResult;
+import org.bukkit.ChatColor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable set of messages compiled from the configuration.
+ * <p>
+ * Messages of the repair functions are indexed by {@link RepairResult.Status status} and {@link CommandFunction
+ * function}, so they are looked up without constructing their IDs.
+ */
+public class Messages {
+
+    private final Map<String, MessageTemplate> templates;
+    private final MessageTemplate[][] senderRepair, targetRepair;
+    private final String selfReplacement, allReplacement, consoleReplacement;
+
+    /**
+     * Compiles all messages from the given configuration.
+     *
+     * @param config the configuration
+     */
+    public Messages(@NotNull YamlDocument config) {
+        // All messages by their IDs, falling back to the defaults for those missing in the file
+        templates = new HashMap<>();
+        Section section = config.getSection(Messenger.MESSAGES_SECTION);
+        if (section != null) {
+            compile(section.getDefaults());
+            compile(section);
+        }
+
+        // Repair messages
+        RepairResult.Status[] statuses = RepairResult.Status.values();
+        CommandFunction[] functions = CommandFunction.values();
+        senderRepair = new MessageTemplate[statuses.length][functions.length];
+        targetRepair = new MessageTemplate[statuses.length][functions.length];
+        for (RepairResult.Status status : statuses) {
+            for (CommandFunction function : functions) {
+                senderRepair[status.ordinal()][function.ordinal()] = get("repair.sender." + status.getPath(function));
+                targetRepair[status.ordinal()][function.ordinal()] = get("repair.target." + status.getPath(function));
+            }
+        }
+
+        // Replacements
+        selfReplacement = translate(config.getString(Target.ROUTE_REPLACEMENT_SELF));
+        allReplacement = translate(config.getString(Target.ROUTE_REPLACEMENT_ALL));
+        consoleReplacement = translate(config.getString(Sender.ROUTE_REPLACEMENT_CONSOLE));
+    }
+
+    /**
+     * Compiles all messages in the given section, replacing those already compiled.
+     *
+     * @param section the messages section, or <code>null</code> if none
+     */
+    private void compile(@Nullable Section section) {
+        if (section == null)
+            return;
+
+        for (String route : section.getRoutesAsStrings(true)) {
+            Object value = section.get(route);
+            if (!(value instanceof Section))
+                templates.put(route, MessageTemplate.compile(value));
+        }
+    }
+
+    /**
+     * Returns the message by the given ID. If there is no such message, returns an empty one.
+     *
+     * @param messageId ID of the message
+     * @return the message
+     */
+    @NotNull
+    public MessageTemplate get(@NotNull String messageId) {
+        return templates.getOrDefault(messageId, MessageTemplate.empty());
+    }
+
+    /**
+     * Returns the message sent to the sender of a repair function with the given result status.
+     *
+     * @param function the function
+     * @param status   the result status
+     * @return the message
+     */
+    @NotNull
+    public MessageTemplate getSenderRepair(@NotNull CommandFunction function, @NotNull RepairResult.Status status) {
+        return senderRepair[status.ordinal()][function.ordinal()];
+    }
+
+    /**
+     * Returns the message sent to the target of a repair function with the given result status.
+     *
+     * @param function the function
+     * @param status   the result status
+     * @return the message
+     */
+    @NotNull
+    public MessageTemplate getTargetRepair(@NotNull CommandFunction function, @NotNull RepairResult.Status status) {
+        return targetRepair[status.ordinal()][function.ordinal()];
+    }
+
+    /**
+     * Returns the replacement for the <code>{target}</code> placeholder when issuing a self repair.
+     *
+     * @return the replacement
+     */
+    @NotNull
+    public String getSelfReplacement() {
+        return selfReplacement;
+    }
+
+    /**
+     * Returns the replacement for the <code>{target}</code> placeholder when issuing a repair for all players.
+     *
+     * @return the replacement
+     */
+    @NotNull
+    public String getAllReplacement() {
+        return allReplacement;
+    }
+
+    /**
+     * Returns the replacement for the <code>{sender}</code> placeholder when the sender is the console.
+     *
+     * @return the replacement
+     */
+    @NotNull
+    public String getConsoleReplacement() {
+        return consoleReplacement;
+    }
+
+    /**
+     * Translates colour codes of the given string. Returns an empty string if <code>null</code>.
+     *
+     * @param string the string to translate
+     * @return the translated string
+     */
+    @NotNull
+    private static String translate(String string) {
+        return string == null ? "" : ChatColor.translateAlternateColorCodes('&', string);
+    }
+
+}
@@ -17,34 +17,51 @@ package dev.dejvokep.repairitem.utils;
 
 import cloud.commandframework.context.CommandContext;
 import dev.dejvokep.repairitem.RepairItem;
-import org.bukkit.ChatColor;
+import dev.dejvokep.repairitem.command.function.CommandFunction;
+import dev.dejvokep.repairitem.repair.RepairAccumulator;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Messenger class used to send command messages.
+ * <p>
+ * All messages are compiled into {@link MessageTemplate templates} as part of the {@link RepairItem#getSettings()
+ * settings} and rendered into a reused (per-thread) builder.
  */
 public class Messenger {
 
     /**
-     * Message path prefix.
+     * Route to the section containing all messages.
      */
-    public static final String MESSAGE_PREFIX = "messages.";
+    public static final String MESSAGES_SECTION = "messages";
 
-    private final RepairItem plugin;
+    /**
+     * Builder used to render messages.
+     */
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final Supplier<Messages> messages;
 
     /**
-     * Initializes the messenger.
+     * Initializes the messenger. Messages are read from the current {@link RepairItem#getSettings() settings}.
      *
      * @param plugin the plugin
      */
     public Messenger(@NotNull RepairItem plugin) {
-        this.plugin = plugin;
+        this(() -> plugin.getSettings().getMessages());
+    }
+
+    /**
+     * Initializes the messenger. Messages are read from the given supplier.
+     *
+     * @param messages supplier of the currently compiled messages
+     */
+    public Messenger(@NotNull Supplier<Messages> messages) {
+        this.messages = messages;
     }
 
     /**
@@ -54,7 +71,7 @@ public class Messenger {
      * @param messageId ID of the message to send
      */
     public void send(@NotNull CommandContext<CommandSender> context, @NotNull String messageId) {
-        send(context, messageId, null);
+        send(context.getSender(), messageId, null);
     }
 
     /**
@@ -68,54 +85,113 @@ public class Messenger {
     }
 
     /**
-     * Sends message to the sender of the given context. If provided, applies the given replacer to the message.
+     * Sends message to the sender of the given context. If provided, resolves the placeholders using the given
+     * resolver.
      *
      * @param context   the command context
      * @param messageId ID of the message to send
-     * @param replacer  replacer to apply to the message
+     * @param resolver  resolver of the placeholder values
      */
-    public void send(@NotNull CommandContext<CommandSender> context, @NotNull String messageId, @Nullable Function<String, String> replacer) {
-        send(context.getSender(), messageId, replacer);
+    public void send(@NotNull CommandContext<CommandSender> context, @NotNull String messageId, @Nullable MessageTemplate.Resolver resolver) {
+        send(context.getSender(), messageId, resolver);
     }
 
     /**
-     * Sends message to the given sender. If provided, applies the given replacer to the message.
+     * Sends message to the sender of the given context, replacing the given placeholder with the given value.
+     *
+     * @param context     the command context
+     * @param messageId   ID of the message to send
+     * @param placeholder the placeholder to replace
+     * @param value       the value to replace the placeholder with
+     */
+    public void send(@NotNull CommandContext<CommandSender> context, @NotNull String messageId, @NotNull Placeholder placeholder, @NotNull String value) {
+        send(context.getSender(), messageId, (other, builder) -> builder.append(other == placeholder ? value : other.getToken()));
+    }
+
+    /**
+     * Sends message to the given sender. If provided, resolves the placeholders using the given resolver.
      *
      * @param sender    the sender to send to
      * @param messageId ID of the message to send
-     * @param replacer  replacer to apply to the message
+     * @param resolver  resolver of the placeholder values
      */
-    public void send(@NotNull CommandSender sender, @NotNull String messageId, @Nullable Function<String, String> replacer) {
-        // Not online
-        if (sender instanceof Player && !((Player) sender).isOnline())
-            return;
+    public void send(@NotNull CommandSender sender, @NotNull String messageId, @Nullable MessageTemplate.Resolver resolver) {
+        send(sender, getMessages().get(messageId), resolver);
+    }
 
-        // Send
-        plugin.getConfiguration().getOptional(MESSAGE_PREFIX + messageId).ifPresent(obj -> {
-            if (obj instanceof Collection) {
-                for (Object message : (Collection<?>) obj)
-                    sendLine(sender, message.toString(), replacer);
-                return;
-            }
+    /**
+     * Sends the message corresponding to the given repair result to the sender of the repair.
+     *
+     * @param sender            the sender to send to
+     * @param function          the repair function
+     * @param result            the result
+     * @param targetReplacement the replacement for the <code>{target}</code> placeholder
+     */
+    public void sendRepairToSender(@NotNull CommandSender sender, @NotNull CommandFunction function, @NotNull RepairAccumulator result, @NotNull String targetReplacement) {
+        send(sender, getMessages().getSenderRepair(function, result.getStatus()), (placeholder, builder) -> appendRepair(placeholder, builder, result, targetReplacement));
+    }
 
-            sendLine(sender, obj.toString(), replacer);
-        });
+    /**
+     * Sends the message corresponding to the given repair result to the target of the repair.
+     *
+     * @param target            the target to send to
+     * @param function          the repair function
+     * @param result            the result
+     * @param senderReplacement the replacement for the <code>{sender}</code> placeholder
+     */
+    public void sendRepairToTarget(@NotNull CommandSender target, @NotNull CommandFunction function, @NotNull RepairAccumulator result, @NotNull String senderReplacement) {
+        send(target, getMessages().getTargetRepair(function, result.getStatus()), (placeholder, builder) -> appendRepair(placeholder, builder, result, senderReplacement));
     }
 
     /**
-     * Sends message to the given sender. If provided, applies the given replacer to the message.
+     * Sends the given message to the given sender. If provided, resolves the placeholders using the given resolver.
      *
      * @param sender   the sender to send to
-     * @param message  the message to send
-     * @param replacer replacer to apply to the message
+     * @param template the message to send
+     * @param resolver resolver of the placeholder values
      */
-    public void sendLine(@NotNull CommandSender sender, @Nullable String message, @Nullable Function<String, String> replacer) {
-        // Validate
-        if (message == null || message.isEmpty())
+    public void send(@NotNull CommandSender sender, @NotNull MessageTemplate template, @Nullable MessageTemplate.Resolver resolver) {
+        // Not online or nothing to send
+        if ((sender instanceof Player && !((Player) sender).isOnline()) || template.isEmpty())
             return;
 
         // Send
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', replacer == null ? message : replacer.apply(message)));
+        template.send(sender, BUILDER.get(), resolver);
+    }
+
+    /**
+     * Returns the currently compiled messages.
+     *
+     * @return the compiled messages
+     */
+    @NotNull
+    public Messages getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * Appends value of the given placeholder of a repair message.
+     *
+     * @param placeholder the placeholder
+     * @param builder     the builder to append to
+     * @param result      the result
+     * @param name        the replacement for the <code>{target}</code> and <code>{sender}</code> placeholders
+     */
+    private static void appendRepair(@NotNull Placeholder placeholder, @NotNull StringBuilder builder, @NotNull RepairAccumulator result, @NotNull String name) {
+        switch (placeholder) {
+            case TARGET:
+            case SENDER:
+                builder.append(name);
+                return;
+            case REPAIRED:
+                builder.append(result.getRepaired());
+                return;
+            case BLOCKED:
+                builder.append(result.getBlocked());
+                return;
+            default:
+                builder.append(placeholder.getToken());
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.repairitem.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Placeholders supported in messages.
+ */
+public enum Placeholder {
+
+    /**
+     * The target player's name, or a configured replacement.
+     */
+    TARGET("{target}"),
+    /**
+     * The sender's name, or a configured replacement.
+     */
+    SENDER("{sender}"),
+    /**
+     * Amount of items repaired.
+     */
+    REPAIRED("{repaired}"),
+    /**
+     * Amount of damaged items which were not repaired because they are blocked.
+     */
+    BLOCKED("{blocked}"),
+    /**
+     * Amount of items which did not need a repair.
+     */
+    INTACT("{intact}"),
+    /**
+     * Amount of blocked item rule evaluations.
+     */
+    EVALUATIONS("{evaluations}"),
+    /**
+     * Average of a statistic.
+     */
+    AVERAGE("{average}"),
+    /**
+     * Name of a function.
+     */
+    FUNCTION("{function}"),
+    /**
+     * Amount of recorded samples of a statistic.
+     */
+    COUNT("{count}"),
+    /**
+     * Mean of a latency statistic, in milliseconds.
+     */
+    MEAN("{mean}"),
+    /**
+     * 99th percentile of a latency statistic, in milliseconds.
+     */
+    P99("{p99}"),
+    /**
+     * Amount of cache hits.
+     */
+    HITS("{hits}"),
+    /**
+     * Amount of cache misses.
+     */
+    MISSES("{misses}"),
+    /**
+     * Amount of cached entries.
+     */
+    SIZE("{size}"),
+    /**
+     * Amount of processed chunks.
+     */
+    CHUNKS("{chunks}"),
+    /**
+     * Total amount of chunks.
+     */
+    TOTAL("{total}"),
+    /**
+     * Amount of visited containers.
+     */
+    CONTAINERS("{containers}"),
+    /**
+     * Amount of skipped chunks.
+     */
+    SKIPPED("{skipped}"),
+    /**
+     * Name of a world.
+     */
+    WORLD("{world}");
+
+    /**
+     * Cached values.
+     */
+    private static final Placeholder[] VALUES = values();
+
+    private final String token;
+
+    /**
+     * Initializes the placeholder.
+     *
+     * @param token the token representing the placeholder in messages
+     */
+    Placeholder(@NotNull String token) {
+        this.token = token;
+    }
+
+    /**
+     * Returns the token representing the placeholder in messages.
+     *
+     * @return the token
+     */
+    @NotNull
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the placeholder whose token starts at the given index of the given string, or <code>null</code> if
+     * there is none.
+     *
+     * @param string the string
+     * @param index  the index
+     * @return the placeholder at the index, or <code>null</code> if none
+     */
+    @Nullable
+    public static Placeholder at(@NotNull String string, int index) {
+        for (Placeholder placeholder : VALUES)
+            if (string.startsWith(placeholder.token, index))
+                return placeholder;
+        return null;
+    }
+
+}
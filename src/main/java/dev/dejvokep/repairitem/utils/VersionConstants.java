@@ -34,6 +34,12 @@ public class VersionConstants {
      */
     public static final boolean LEGACY_DURABILITY = is(new String[]{"1.7", "1.8", "1.9", "1.10", "1.11", "1.12"});
 
+    /**
+     * Constant representing if listing tags of persistent data containers is unsupported (if the sever version is
+     * older than 1.16).
+     */
+    public static final boolean PERSISTENT_DATA_UNSUPPORTED = is(new String[]{"1.7", "1.8", "1.9", "1.10", "1.11", "1.12", "1.13", "1.14", "1.15"});
+
     /**
      * Returns if the server's version is contained within the given versions array.
      *